@@ -12,6 +12,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import security.DGK.DGKEncryptionPool;
 import security.DGK.DGKKeyPairGenerator;
 import security.DGK.DGKOperations;
 import security.DGK.DGKPrivateKey;
@@ -31,9 +32,10 @@ import security.gm.GMKeyPairGenerator;
 import security.gm.GMPrivateKey;
 import security.gm.GMPublicKey;
 import security.paillier.PaillierCipher;
-import security.paillier.PaillierKeyPairGenerator;
+import security.paillier.PaillierKeyPairPool;
 import security.paillier.PaillierPrivateKey;
 import security.paillier.PaillierPublicKey;
+import security.paillier.PaillierRandomizerPool;
 import security.paillier.PaillierSignature;
 import security.paillier.PaillierProvider;
 import security.socialistmillionaire.alice;
@@ -92,6 +94,9 @@ public class Minimized
 				pk = aClient.getPaillierPublicKey();
 				sk = aClient.getPaillierPrivateKey();
 				System.out.println("Pallier Key Received");
+				PaillierRandomizerPool pool = PaillierRandomizerPool.bind(pk);
+				// [[1]] for the XOR step of the comparisons
+				DGKEncryptionPool bits = DGKEncryptionPool.bind(aClient.getDGKPublicKey());
 
 				aClient.setDGKMode(false);
 				System.out.println("DGK Mode: " + aClient.isDGK());
@@ -103,21 +108,12 @@ public class Minimized
 //						PaillierCipher.encrypt(new BigInteger("24"), pk),
 //						PaillierCipher.encrypt(new BigInteger("126"), pk),
 //						PaillierCipher.encrypt(new BigInteger("18"), pk) };
-				int i;
 				long startTime = System.currentTimeMillis();
 				System.out.println("Encrypting...");
-				BigInteger[] pCiphers = new BigInteger[data_array.length];
-				for (i = 0; i < data_array.length; i++) {
-					pCiphers[i] = PaillierCipher.encrypt(data_array[i], pk);
-		        }
+				BigInteger[] pCiphers = PaillierCipher.encryptAll(data_array, pk);
 				long encryption_endTime = System.currentTimeMillis();
 				System.out.println("Summing...");
-				BigInteger sum = pCiphers[0];
-				int avgI = 1;
-				while (avgI < pCiphers.length) {
-					sum = PaillierCipher.add(sum, pCiphers[avgI], pk);
-					avgI++;
-				}
+				BigInteger sum = PaillierCipher.sum(pCiphers, pk);
 				long sum_endTime = System.currentTimeMillis();
 				System.out.println("Sorting...");
 				PaillierMergeSort(pCiphers);
@@ -129,34 +125,46 @@ public class Minimized
 				} else {
 					median = pCiphers[(pCiphers.length/2)];
 				}
-				System.out.println("Sum value: " + PaillierCipher.decrypt(sum, sk));
-				System.out.println("Min value: " + PaillierCipher.decrypt(pCiphers[0], sk));
-				System.out.println("Max value: " + PaillierCipher.decrypt(pCiphers[pCiphers.length-1], sk));
-				System.out.println("Median value: " + PaillierCipher.decrypt(median, sk));
+				BigInteger[] results = PaillierCipher.decryptAll(new BigInteger[] { sum, pCiphers[0], pCiphers[pCiphers.length-1], median }, sk);
+				System.out.println("Sum value: " + results[0]);
+				System.out.println("Min value: " + results[1]);
+				System.out.println("Max value: " + results[2]);
+				System.out.println("Median value: " + results[3]);
 				long endTime = System.currentTimeMillis();
 				System.out.println("Total time:" + (endTime - startTime));
 				System.out.println("Encryption time:" + (encryption_endTime - startTime));
 				System.out.println("Sum time:" + (sum_endTime - encryption_endTime));
 				System.out.println("Sorting time:" + (sort_endTime - encryption_endTime));
 				System.out.println("Decryption time:" + (endTime - sort_endTime));
+				System.out.println("Randomizer pool hits: " + pool.getHits() + ", misses: " + pool.getMisses());
+				System.out.println("DGK bit pool hits: " + bits.getHits() + ", misses: " + bits.getMisses());
+				pool.shutdown();
+				bits.shutdown();
 				System.exit(0);
 				
 			}
 			else
 			{
+				// Paillier keys are generated in the background while the DGK keys are built
+				PaillierKeyPairPool paillier_keys = new PaillierKeyPairPool(KEY_SIZE, true, true, 1);
+				
 				// Build DGK Keys
 				DGKKeyPairGenerator gen = new DGKKeyPairGenerator(16, 160, 1024);
 				gen.initialize(KEY_SIZE, null);
 				KeyPair DGK = gen.generateKeyPair();
 				pubKey = (DGKPublicKey) DGK.getPublic();
 				privKey = (DGKPrivateKey) DGK.getPrivate();
+				// Bob's [[y_i]] are taken from the bound pool
+				DGKEncryptionPool.bind(pubKey);
 				
-				// Build Paillier Keys
-				PaillierKeyPairGenerator p = new PaillierKeyPairGenerator();
-				p.initialize(KEY_SIZE, null);
-				KeyPair pe = p.generateKeyPair();
+				// Take the Paillier Keys, waits if the background key pair is not done yet
+				// Shut down first so no second key pair is started once this one is taken
+				paillier_keys.shutdown();
+				KeyPair pe = paillier_keys.take();
 				pk = (PaillierPublicKey) pe.getPublic();
 				sk = (PaillierPrivateKey) pe.getPrivate();
+				// PaillierCipher.encrypt picks up the bound pool automatically
+				PaillierRandomizerPool.bind(pk);
 				
 				
 				bob_socket = new ServerSocket(9254);
@@ -0,0 +1,315 @@
+package security.DGK;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.function.IntConsumer;
+
+import security.generic.NTL;
+import security.generic.Parallel;
+
+/*
+ * Immutable vector of DGK ciphertexts under one public key, e.g. the encrypted bits [[y_i]]
+ * of the comparison protocols.
+ *
+ * Every element is checked to be in Z_n once, in valueOf(), and the element-wise
+ * operations after that skip the per-call checks of DGKOperations.
+ * Subtraction uses one batched inverse for the whole vector instead of a modPow by u - 1 per element.
+ *
+ * The trivial encryption of 0 is 1 (no h^r factor), so prefix sums need no fresh encryption of 0.
+ * Results of prefix sums and plaintext additions are only as random as their inputs,
+ * call rerandomize() or blind them before they leave the process.
+ *
+ * Serialized as a plain BigInteger[], so the alice/bob wire format does not change.
+ */
+public final class DGKCiphertextVector implements Serializable
+{
+	private static final long serialVersionUID = 3270158211573432417L;
+
+	private final transient DGKPublicKey pubKey;
+	private final transient BigInteger [] c;
+
+	private DGKCiphertextVector(DGKPublicKey pubKey, BigInteger [] c)
+	{
+		this.pubKey = pubKey;
+		this.c = c;
+	}
+
+	// Wrap existing ciphertexts, e.g. received from the other party
+	public static DGKCiphertextVector valueOf(BigInteger [] ciphertext, DGKPublicKey pubKey)
+	{
+		for (int i = 0; i < ciphertext.length; i++)
+		{
+			if (ciphertext[i].signum() == -1 || ciphertext[i].compareTo(pubKey.n) >= 0)
+			{
+				throw new IllegalArgumentException("Ciphertext " + i + " is not in Zn: " + ciphertext[i]);
+			}
+		}
+		return new DGKCiphertextVector(pubKey, ciphertext.clone());
+	}
+
+	public static DGKCiphertextVector encrypt(final long [] plaintext, final DGKPublicKey pubKey)
+	{
+		final BigInteger [] c = new BigInteger[plaintext.length];
+		Parallel.forEach(Parallel.defaultPool(), c.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				c[i] = DGKOperations.encrypt(pubKey, plaintext[i]);
+			}
+		});
+		return new DGKCiphertextVector(pubKey, c);
+	}
+
+	public int length()
+	{
+		return c.length;
+	}
+
+	public BigInteger get(int i)
+	{
+		return c[i];
+	}
+
+	public BigInteger [] toArray()
+	{
+		return c.clone();
+	}
+
+	public DGKPublicKey getPublicKey()
+	{
+		return pubKey;
+	}
+
+	public long [] decrypt(final DGKPrivateKey privKey)
+	{
+		final long [] plaintext = new long[c.length];
+		Parallel.forEach(Parallel.defaultPool(), c.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				plaintext[i] = DGKOperations.decrypt(privKey, c[i]);
+			}
+		});
+		return plaintext;
+	}
+
+	//-----------------------Element-wise operations----------------------------------------------
+
+	// [[a_i + b_i]]
+	public DGKCiphertextVector add(DGKCiphertextVector other)
+	{
+		check(other);
+		BigInteger [] result = new BigInteger[c.length];
+		for (int i = 0; i < c.length; i++)
+		{
+			result[i] = c[i].multiply(other.c[i]).mod(pubKey.n);
+		}
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	// [[a_i - b_i]] = [[a_i]] * [[b_i]]^{-1}
+	public DGKCiphertextVector subtract(DGKCiphertextVector other)
+	{
+		check(other);
+		BigInteger [] inverse = inverse(other.c, pubKey.n);
+		for (int i = 0; i < c.length; i++)
+		{
+			inverse[i] = c[i].multiply(inverse[i]).mod(pubKey.n);
+		}
+		return new DGKCiphertextVector(pubKey, inverse);
+	}
+
+	// [[a_i + m]], m may be -1 like in DGKOperations.add_plaintext
+	public DGKCiphertextVector add_plaintext(long plaintext)
+	{
+		BigInteger gm = g_pow(plaintext);
+		BigInteger [] result = new BigInteger[c.length];
+		for (int i = 0; i < c.length; i++)
+		{
+			result[i] = c[i].multiply(gm).mod(pubKey.n);
+		}
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	// [[a_i + m_i]]
+	public DGKCiphertextVector add_plaintext(long [] plaintext)
+	{
+		checkLength(plaintext.length);
+		BigInteger [] result = new BigInteger[c.length];
+		for (int i = 0; i < c.length; i++)
+		{
+			result[i] = c[i].multiply(g_pow(plaintext[i])).mod(pubKey.n);
+		}
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	// [[k * a_i]]
+	public DGKCiphertextVector multiply(final long scalar)
+	{
+		final BigInteger k = BigInteger.valueOf(scalar);
+		final BigInteger [] result = new BigInteger[c.length];
+		Parallel.forEach(Parallel.defaultPool(), c.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				result[i] = c[i].modPow(k, pubKey.n);
+			}
+		});
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	// [[k_i * a_i]], e.g. blinding each element with its own random scalar
+	public DGKCiphertextVector multiply(final long [] scalar)
+	{
+		checkLength(scalar.length);
+		final BigInteger [] result = new BigInteger[c.length];
+		Parallel.forEach(Parallel.defaultPool(), c.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				result[i] = c[i].modPow(BigInteger.valueOf(scalar[i]), pubKey.n);
+			}
+		});
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	/**
+	 * [[x_i XOR y_i]] for the plaintext bits x_i of x and this vector [[y_i]]:
+	 * [[y_i]] if x_i = 0, [[1]] - [[y_i]] = g * [[y_i]]^{-1} if x_i = 1.
+	 */
+	public DGKCiphertextVector xor(BigInteger x)
+	{
+		BigInteger [] result = c.clone();
+		BigInteger [] inverse = inverse(c, pubKey.n);
+		for (int i = 0; i < c.length; i++)
+		{
+			if (NTL.bit(x, i) == 1)
+			{
+				result[i] = pubKey.g.multiply(inverse[i]).mod(pubKey.n);
+			}
+		}
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	//-----------------------Sums----------------------------------------------
+
+	// [[a_0 + ... + a_{l-1}]]
+	public BigInteger sum()
+	{
+		BigInteger sum = BigInteger.ONE;
+		for (int i = 0; i < c.length; i++)
+		{
+			sum = sum.multiply(c[i]).mod(pubKey.n);
+		}
+		return sum;
+	}
+
+	// Element i is [[a_0 + ... + a_i]]
+	public DGKCiphertextVector prefix_sum()
+	{
+		BigInteger [] result = new BigInteger[c.length];
+		BigInteger sum = BigInteger.ONE;
+		for (int i = 0; i < c.length; i++)
+		{
+			sum = sum.multiply(c[i]).mod(pubKey.n);
+			result[i] = sum;
+		}
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	// Element i is [[a_0 + ... + a_{i-1}]], element 0 is the trivial [[0]] = 1
+	public DGKCiphertextVector exclusive_prefix_sum()
+	{
+		BigInteger [] result = new BigInteger[c.length];
+		BigInteger sum = BigInteger.ONE;
+		for (int i = 0; i < c.length; i++)
+		{
+			result[i] = sum;
+			sum = sum.multiply(c[i]).mod(pubKey.n);
+		}
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	// Multiply a fresh h^r into every element, the plaintexts do not change
+	public DGKCiphertextVector rerandomize()
+	{
+		final BigInteger [] result = new BigInteger[c.length];
+		Parallel.forEach(Parallel.defaultPool(), c.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				BigInteger r = NTL.generateXBitRandom(2 * pubKey.t);
+				result[i] = c[i].multiply(pubKey.hPow(r)).mod(pubKey.n);
+			}
+		});
+		return new DGKCiphertextVector(pubKey, result);
+	}
+
+	//-----------------------Helpers----------------------------------------------
+
+	private BigInteger g_pow(long plaintext)
+	{
+		if (plaintext < -1 || plaintext >= pubKey.u)
+		{
+			throw new IllegalArgumentException("Plaintext is not in Zu: " + plaintext);
+		}
+		if (plaintext == -1)
+		{
+			return pubKey.g.modInverse(pubKey.n);
+		}
+		return pubKey.gPow(plaintext);
+	}
+
+	/*
+	 * Montgomery's batch inversion: one modInverse and 3(l - 1) multiplications
+	 * for all l elements, instead of one modInverse each.
+	 */
+	private static BigInteger [] inverse(BigInteger [] a, BigInteger n)
+	{
+		BigInteger [] result = new BigInteger[a.length];
+		if (a.length == 0)
+		{
+			return result;
+		}
+		// result[i] = a_0 * ... * a_i
+		result[0] = a[0];
+		for (int i = 1; i < a.length; i++)
+		{
+			result[i] = result[i - 1].multiply(a[i]).mod(n);
+		}
+		BigInteger inverse = result[a.length - 1].modInverse(n);
+		for (int i = a.length - 1; i > 0; i--)
+		{
+			// (a_0 ... a_i)^{-1} * (a_0 ... a_{i-1}) = a_i^{-1}
+			BigInteger a_i = a[i];
+			result[i] = inverse.multiply(result[i - 1]).mod(n);
+			inverse = inverse.multiply(a_i).mod(n);
+		}
+		result[0] = inverse;
+		return result;
+	}
+
+	private void check(DGKCiphertextVector other)
+	{
+		if (other.pubKey != pubKey && !other.pubKey.n.equals(pubKey.n))
+		{
+			throw new IllegalArgumentException("Ciphertexts are under different DGK keys!");
+		}
+		checkLength(other.c.length);
+	}
+
+	private void checkLength(int length)
+	{
+		if (length != c.length)
+		{
+			throw new IllegalArgumentException("Vectors are NOT the same size!");
+		}
+	}
+
+	// Sent as a plain BigInteger[]
+	private Object writeReplace() throws ObjectStreamException
+	{
+		return c.clone();
+	}
+}
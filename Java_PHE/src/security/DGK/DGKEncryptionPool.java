@@ -0,0 +1,306 @@
+package security.DGK;
+
+import java.math.BigInteger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Pool of fresh DGK encryptions of the constants 0, 1, ..., max_constant bound to one public key.
+ * The comparison protocols mostly encrypt bits (Bob's [[y_i]], pubKey.ONE() in Alice's XOR),
+ * so by default only [[0]] and [[1]] are kept.
+ *
+ * Background threads refill whichever constant has the fewest encryptions left,
+ * go idle when every queue is full, and start again once one drops below the low-watermark.
+ * Pools are only created through bind(), which attaches the new pool to the key and shuts
+ * down the pool bound before it. While the pool is bound, DGKOperations.encrypt takes from
+ * here and only encrypts inline when the queue for that constant is empty (a miss).
+ * Each encryption is handed out only once.
+ */
+public final class DGKEncryptionPool
+{
+	public final static int DEFAULT_MAX_CONSTANT = 1;
+	public final static int DEFAULT_CAPACITY = 1024;
+	public final static int DEFAULT_LOW_WATERMARK = 256;
+
+	private final DGKPublicKey pubKey;
+	private final int max_constant;
+	private final int capacity;
+	private final int low_watermark;
+	private final BlockingQueue<BigInteger> [] pool;
+	private final ExecutorService producers;
+
+	// Producers only work while filling is true
+	private final Object lock = new Object();
+	private boolean filling = true;
+	private volatile boolean running = true;
+
+	// Metrics
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong produced = new AtomicLong();
+
+	// Generic array creation: new BlockingQueue<BigInteger>[n] is not allowed
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private DGKEncryptionPool(DGKPublicKey pubKey, int max_constant, int capacity, int low_watermark, int threads)
+	{
+		if (max_constant < 0 || max_constant >= pubKey.u)
+		{
+			throw new IllegalArgumentException("Largest pooled constant must be in [0, u)!");
+		}
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("Pool capacity must be positive!");
+		}
+		if (low_watermark < 0 || low_watermark > capacity)
+		{
+			throw new IllegalArgumentException("Low-watermark must be in [0, capacity]!");
+		}
+		if (threads <= 0)
+		{
+			throw new IllegalArgumentException("Need at least one producer thread!");
+		}
+		this.pubKey = pubKey;
+		this.max_constant = max_constant;
+		this.capacity = capacity;
+		this.low_watermark = low_watermark;
+		this.pool = new BlockingQueue[max_constant + 1];
+		for (int m = 0; m <= max_constant; m++)
+		{
+			this.pool[m] = new ArrayBlockingQueue<BigInteger>(capacity);
+		}
+		this.producers = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "dgk-encryption");
+				t.setDaemon(true);
+				t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			}
+		});
+		for (int i = 0; i < threads; i++)
+		{
+			producers.execute(new Runnable()
+			{
+				public void run()
+				{
+					produce();
+				}
+			});
+		}
+	}
+
+	public static DGKEncryptionPool bind(DGKPublicKey pubKey)
+	{
+		return bind(pubKey, DEFAULT_MAX_CONSTANT, DEFAULT_CAPACITY, DEFAULT_LOW_WATERMARK, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Start a pool for pubKey and bind it, so DGKOperations.encrypt uses it.
+	 * A pool that was bound to pubKey before is shut down.
+	 */
+	public static DGKEncryptionPool bind(DGKPublicKey pubKey, int max_constant, int capacity, int low_watermark, int threads)
+	{
+		DGKEncryptionPool pool = new DGKEncryptionPool(pubKey, max_constant, capacity, low_watermark, threads);
+		DGKEncryptionPool old;
+		synchronized (DGKEncryptionPool.class)
+		{
+			old = pubKey.encryptions;
+			pubKey.encryptions = pool;
+		}
+		if (old != null)
+		{
+			old.shutdown();
+		}
+		return pool;
+	}
+
+	// Constant with the fewest pooled encryptions, or -1 if every queue is full
+	private int emptiest()
+	{
+		int best = -1;
+		int best_size = capacity;
+		for (int m = 0; m <= max_constant; m++)
+		{
+			int size = pool[m].size();
+			if (size < best_size)
+			{
+				best = m;
+				best_size = size;
+			}
+		}
+		return best;
+	}
+
+	private void produce()
+	{
+		while (running)
+		{
+			synchronized (lock)
+			{
+				while (running && !filling)
+				{
+					try
+					{
+						lock.wait();
+					}
+					catch (InterruptedException e)
+					{
+						return;
+					}
+				}
+			}
+			if (!running)
+			{
+				return;
+			}
+
+			int m = emptiest();
+			if (m == -1)
+			{
+				synchronized (lock)
+				{
+					filling = false;
+				}
+				continue;
+			}
+			if (pool[m].offer(DGKOperations.compute(pubKey, m)))
+			{
+				produced.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Take a precomputed encryption of a constant. Each value is handed out only once.
+	 * @return [[plaintext]], or null if plaintext is not pooled or its queue is empty
+	 */
+	public BigInteger take(long plaintext)
+	{
+		if (plaintext < 0 || plaintext > max_constant)
+		{
+			return null;
+		}
+		BlockingQueue<BigInteger> queue = pool[(int) plaintext];
+		BigInteger c = queue.poll();
+		if (c == null)
+		{
+			misses.incrementAndGet();
+		}
+		else
+		{
+			hits.incrementAndGet();
+		}
+		if (queue.size() < low_watermark)
+		{
+			synchronized (lock)
+			{
+				if (!filling)
+				{
+					filling = true;
+					lock.notifyAll();
+				}
+			}
+		}
+		return c;
+	}
+
+	// Stop the producers and unbind the pool from its public key
+	public void shutdown()
+	{
+		running = false;
+		synchronized (lock)
+		{
+			lock.notifyAll();
+		}
+		producers.shutdownNow();
+		synchronized (DGKEncryptionPool.class)
+		{
+			if (pubKey.encryptions == this)
+			{
+				pubKey.encryptions = null;
+			}
+		}
+		for (int m = 0; m <= max_constant; m++)
+		{
+			pool[m].clear();
+		}
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		return producers.awaitTermination(timeout, unit);
+	}
+
+	public DGKPublicKey getPublicKey()
+	{
+		return pubKey;
+	}
+
+	public int getMaxConstant()
+	{
+		return max_constant;
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	public int getLowWatermark()
+	{
+		return low_watermark;
+	}
+
+	// Pooled encryptions of one constant
+	public int size(long plaintext)
+	{
+		if (plaintext < 0 || plaintext > max_constant)
+		{
+			return 0;
+		}
+		return pool[(int) plaintext].size();
+	}
+
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	public long getProduced()
+	{
+		return produced.get();
+	}
+
+	public double getHitRate()
+	{
+		long total = hits.get() + misses.get();
+		if (total == 0)
+		{
+			return 0;
+		}
+		return (double) hits.get() / total;
+	}
+
+	public String toString()
+	{
+		String answer = "";
+		answer += "max_constant = " + this.max_constant + ", " + '\n';
+		answer += "capacity = " + this.capacity + ", " + '\n';
+		answer += "low_watermark = " + this.low_watermark + ", " + '\n';
+		answer += "hits = " + this.getHits() + ", " + '\n';
+		answer += "misses = " + this.getMisses() + ", " + '\n';
+		answer += "produced = " + this.getProduced() + '\n';
+		return answer;
+	}
+}
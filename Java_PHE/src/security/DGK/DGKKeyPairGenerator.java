@@ -4,9 +4,13 @@ import java.math.BigInteger;
 import java.security.KeyPair;
 import java.security.KeyPairGeneratorSpi;
 import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import security.generic.CipherConstants;
 import security.generic.NTL;
+import security.generic.Parallel;
 
 public final class DGKKeyPairGenerator extends KeyPairGeneratorSpi implements CipherConstants
 {
@@ -15,8 +19,13 @@ public final class DGKKeyPairGenerator extends KeyPairGeneratorSpi implements Ci
 	private int t = 160;
 	private int k = 1024;
 	private boolean no_skip_public_key_maps = true;
+	// Largest decryption table, larger u use baby-step/giant-step decryption
+	private long table_size = DGKPrivateKey.DEFAULT_TABLE_SIZE;
 	private SecureRandom rnd = null;
 	
+	// For reporting the phases in milli-seconds
+	private final static int MILLION = 1000000;
+	
 	public DGKKeyPairGenerator(int l, int t, int k)
 	{
 		// First check that all the parameters of the KeyPair are coherent throw an exception otherwise
@@ -123,6 +132,20 @@ public final class DGKKeyPairGenerator extends KeyPairGeneratorSpi implements Ci
 		return no_skip_public_key_maps;
 	}
 
+	public void setTableSize(long table_size)
+	{
+		if (table_size < 1 || table_size > Integer.MAX_VALUE / 2)
+		{
+			throw new IllegalArgumentException("Decryption table size must be in [1, 2^30)!");
+		}
+		this.table_size = table_size;
+	}
+	
+	public long getTableSize()
+	{
+		return table_size;
+	}
+	
 	public void initialize(int k, SecureRandom random) 
 	{
 		if (this.l > this.t || this.t > k)
@@ -141,6 +164,7 @@ public final class DGKKeyPairGenerator extends KeyPairGeneratorSpi implements Ci
 	public KeyPair generateKeyPair() 
 	{
 		long start_time = System.nanoTime();
+		long phase_time = start_time;
 		if(this.rnd == null)
 		{
 			this.rnd = new SecureRandom();
@@ -148,120 +172,183 @@ public final class DGKKeyPairGenerator extends KeyPairGeneratorSpi implements Ci
 		
 		DGKPublicKey pubKey = null;
 		DGKPrivateKey privkey = null;
+		ForkJoinPool pool = Parallel.defaultPool();
 		
 		System.out.println("Generating Keys...");
 
 		BigInteger p, rp;
 		BigInteger q, rq;
 		BigInteger g, h ;
-		BigInteger n, r ;
+		BigInteger n;
 		BigInteger u = TWO.pow(this.l);
-		BigInteger vp, vq, vpvq, tmp;
+		BigInteger vp, vq, tmp;
 
 		while(true)
 		{
 			//Following the instruction as stated on DGK C++ counterpart
 			u = u.nextProbablePrime();
+			// vq on another worker while this thread generates vp
+			ForkJoinTask<BigInteger> find_vq = pool.submit(random_prime(this.t, this.rnd));
 			vp = new BigInteger(this.t, CERTAINTY, this.rnd);//(160, 40, random)
-			vq = new BigInteger(this.t, CERTAINTY, this.rnd);//(160, 40, random)
-			vpvq = vp.multiply(vq);
-			tmp = u.multiply(vp);
+			vq = find_vq.join();//(160, 40, random)
 
 			System.out.println("Completed generating vp, vq");
 
-			int needed_bits = this.k/2 - (tmp.bitLength());
-
-			// Generate rp until p is prime such that u * vp divides p-1
-			do
-			{
-				rp = new BigInteger(needed_bits, rnd);
-				rp = rp.setBit(needed_bits - 1);
-				
-				/*
-				 * p = rp * u * vp + 1
-				 * u | p - 1
-				 * vp | p - 1
-				 */
-				p = rp.multiply(tmp).add(BigInteger.ONE);
-			}
-			while(!p.isProbablePrime(CERTAINTY));
-
-			tmp = u.multiply(vq);
-			needed_bits = this.k/2 - (tmp.bitLength());
-			do
-			{
-				// Same method for q than for p
-				rq = new BigInteger(needed_bits, rnd);
-				rq = rq.setBit(needed_bits -1);
-				q = rq.multiply(tmp).add(BigInteger.ONE); // q = rq*(vq*u) + 1
-				//
-
-				/*
-				 * q - 1 | rq * vq * u
-				 * Therefore,
-				 * c^{vp} = g^{vp*m} (mod n) because
-				 * rq | (q - 1)
-				 */
-			}
-			while(!q.isProbablePrime(CERTAINTY));
+			/*
+			 * p = rp * u * vp + 1
+			 * u | p - 1
+			 * vp | p - 1
+			 * 
+			 * q - 1 | rq * vq * u
+			 * Therefore,
+			 * c^{vp} = g^{vp*m} (mod n) because
+			 * rq | (q - 1)
+			 * 
+			 * Search for q on another worker while this thread searches for p
+			 */
+			ForkJoinTask<BigInteger []> find_q = pool.submit(find_prime_task(u.multiply(vq), this.k, this.rnd));
+			BigInteger [] rp_p = find_prime(u.multiply(vp), this.k, this.rnd);
+			BigInteger [] rq_q = find_q.join();
+			rp = rp_p[0];
+			p = rp_p[1];
+			rq = rq_q[0];
+			q = rq_q[1];
+			
 			//Thus we ensure that q is a prime, with p-1 divides the prime numbers vq and u
 			if(!NTL.POSMOD(rq, u).equals(BigInteger.ZERO) && 
 					!NTL.POSMOD(rp, u).equals(BigInteger.ZERO))
 			{
 				break;
 			}
-			
 		}
 	
 		n = p.multiply(q);
 		tmp = rp.multiply(rq).multiply(u);
-		System.out.println("While Loop 1: n, p and q is generated.");
+		System.out.println("While Loop 1: n, p and q is generated in " + (System.nanoTime() - phase_time)/MILLION + " ms");
+		phase_time = System.nanoTime();
 
-		while(true)
-		{
-			//Generate n bit random number
-			r = NTL.generateXBitRandom(n.bitLength());	
-			h = r.modPow(tmp, n); // h = r^{rp*rq*u} (mod n)
+		// h and g are independent, search for h on another worker while this thread searches for g
+		ForkJoinTask<BigInteger> find_h = pool.submit(find_h(n, tmp, u, vp, vq));
+		g = find_g(n, rp.multiply(rq), u, vp, vq, p, q);
+		h = find_h.join();
+		System.out.println("While loop 2 and 3: g and h are generated in " + (System.nanoTime() - phase_time)/MILLION + " ms");
+		phase_time = System.nanoTime();
 
-			if (h.equals(BigInteger.ONE))
-			{
-				continue;
-			}
-
-			if (h.modPow(vp,n).equals(BigInteger.ONE))
-			{
-				continue;//h^{vp}(mod n) = 1
-			}
-
-			if (h.modPow(vq,n).equals(BigInteger.ONE))
-			{
-				continue;//h^{vq}(mod n) = 1
-			}
-
-			if (h.modPow(u, n).equals(BigInteger.ONE))
-			{
-				continue;//h^{u}(mod n) = 1
-			}
-
-			if (h.modPow(u.multiply(vq), n).equals(BigInteger.ONE))
+		System.out.println("Generating lookup tables...");
+		pubKey =  new DGKPublicKey(n, g, h, u, this.l, this.t, this.k);
+		// Public key tables on another worker while this thread builds the decryption table
+		ForkJoinTask<?> public_tables = null;
+		if(no_skip_public_key_maps)
+		{
+			public_tables = pool.submit(pubKey);
+		}
+		privkey = new DGKPrivateKey(p, q, vp, vq, pubKey, this.table_size);
+		privkey.precompute();
+		if(public_tables != null)
+		{
+			public_tables.join();
+		}
+		System.out.println("Lookup tables are generated in " + (System.nanoTime() - phase_time)/MILLION + " ms");
+		
+		System.out.println("FINISHED WITH DGK KEY GENERATION in " + (System.nanoTime() - start_time)/BILLION + " seconds!");
+		return new KeyPair(pubKey, privkey);
+	}
+	
+	private static Callable<BigInteger> random_prime(final int bits, final SecureRandom rnd)
+	{
+		return new Callable<BigInteger>()
+		{
+			public BigInteger call()
 			{
-				continue;//h^{u*vq} (mod n) = 1
+				return new BigInteger(bits, CERTAINTY, rnd);
 			}
-
-			if (h.modPow(u.multiply(vp), n).equals(BigInteger.ONE))
+		};
+	}
+	
+	// Generate r until r * factor + 1 is a prime of about k/2 bits, returns {r, r * factor + 1}
+	private static BigInteger [] find_prime(BigInteger factor, int k, SecureRandom rnd)
+	{
+		int needed_bits = k/2 - (factor.bitLength());
+		BigInteger r, prime;
+		do
+		{
+			r = new BigInteger(needed_bits, rnd);
+			r = r.setBit(needed_bits - 1);
+			prime = r.multiply(factor).add(BigInteger.ONE);
+		}
+		while(!prime.isProbablePrime(CERTAINTY));
+		return new BigInteger [] { r, prime };
+	}
+	
+	private static Callable<BigInteger []> find_prime_task(final BigInteger factor, final int k, final SecureRandom rnd)
+	{
+		return new Callable<BigInteger []>()
+		{
+			public BigInteger [] call()
 			{
-				continue;//h^{u*vp} (mod n) = 1
+				return find_prime(factor, k, rnd);
 			}
-
-			if (h.gcd(n).equals(BigInteger.ONE))
+		};
+	}
+	
+	private static Callable<BigInteger> find_h(final BigInteger n, final BigInteger tmp, 
+			final BigInteger u, final BigInteger vp, final BigInteger vq)
+	{
+		return new Callable<BigInteger>()
+		{
+			public BigInteger call()
 			{
-				break;//(h, n) = 1
+				BigInteger r, h;
+				while(true)
+				{
+					//Generate n bit random number
+					r = NTL.generateXBitRandom(n.bitLength());	
+					h = r.modPow(tmp, n); // h = r^{rp*rq*u} (mod n)
+
+					if (h.equals(BigInteger.ONE))
+					{
+						continue;
+					}
+
+					if (h.modPow(vp,n).equals(BigInteger.ONE))
+					{
+						continue;//h^{vp}(mod n) = 1
+					}
+
+					if (h.modPow(vq,n).equals(BigInteger.ONE))
+					{
+						continue;//h^{vq}(mod n) = 1
+					}
+
+					if (h.modPow(u, n).equals(BigInteger.ONE))
+					{
+						continue;//h^{u}(mod n) = 1
+					}
+
+					if (h.modPow(u.multiply(vq), n).equals(BigInteger.ONE))
+					{
+						continue;//h^{u*vq} (mod n) = 1
+					}
+
+					if (h.modPow(u.multiply(vp), n).equals(BigInteger.ONE))
+					{
+						continue;//h^{u*vp} (mod n) = 1
+					}
+
+					if (h.gcd(n).equals(BigInteger.ONE))
+					{
+						return h;//(h, n) = 1
+					}
+				}
 			}
-		}
-
-		BigInteger rprq = rp.multiply(rq);
-		System.out.println("While loop 2: h is generated");
-
+		};
+	}
+	
+	private static BigInteger find_g(BigInteger n, BigInteger rprq, BigInteger u, 
+			BigInteger vp, BigInteger vq, BigInteger p, BigInteger q)
+	{
+		BigInteger r, g;
+		BigInteger vpvq = vp.multiply(vq);
 		while(true)
 		{
 			r = NTL.generateXBitRandom(n.bitLength());
@@ -342,20 +429,8 @@ public final class DGKKeyPairGenerator extends KeyPairGeneratorSpi implements Ci
 			{
 				continue;//g^{u}(mod q)
 			}
-			break;
+			return g;
 		}
-		System.out.println("While loop 3: g is generated");
-
-		System.out.println("Generating hashmaps...");
-		pubKey =  new DGKPublicKey(n, g, h, u, this.l, this.t, this.k);
-		privkey = new DGKPrivateKey(p, q, vp, vq, pubKey);
-		if(no_skip_public_key_maps)
-		{
-			pubKey.run();
-		}
-		
-		System.out.println("FINISHED WITH DGK KEY GENERATION in " + (System.nanoTime() - start_time)/BILLION + " seconds!");
-		return new KeyPair(pubKey, privkey);
 	}
 
 	public String toString()
@@ -13,6 +13,7 @@ import security.DGK.DGKPrivateKey;
 import security.DGK.DGKPublicKey;
 
 import security.generic.NTL;
+import security.generic.Parallel;
 import security.paillier.PaillierKey;
 import security.paillier.PaillierPrivateKey;
 import security.paillier.PaillierPublicKey;
@@ -29,6 +30,9 @@ import java.security.spec.AlgorithmParameterSpec;
 
 
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
 
 /*
  * Credits to Andrew Quijano for code conversion and 
@@ -409,40 +413,38 @@ public final class DGKOperations extends CipherSpi
 					+ " (plaintext >= U) value of Plain Text is: " + plaintext);
 		}
 
-		// If it is null, just fill the HashMap to avoid Null Pointer!
-		if (pubKey.gLUT.get(plaintext) == null)
+		// Take a precomputed encryption if a pool is bound to this key and has one left
+		DGKEncryptionPool pool = pubKey.encryptions;
+		if (pool != null)
 		{
-			//first part = g^m (mod n)
-			pubKey.gLUT.put(plaintext, pubKey.g.modPow(BigInteger.valueOf(plaintext), pubKey.n));
+			ciphertext = pool.take(plaintext);
+			if (ciphertext != null)
+			{
+				return ciphertext;
+			}
 		}
+		return compute(pubKey, plaintext);
+	}
 
+	// g^m * h^r (mod n) with a fresh r, plaintext already checked
+	protected static BigInteger compute(DGKPublicKey pubKey, long plaintext)
+	{
 		// Generate 2 * t bit random number
 		BigInteger r = NTL.generateXBitRandom(2 * pubKey.t);
 
-		// First part = g^m
-		BigInteger firstpart = pubKey.gLUT.get(plaintext);
-		BigInteger secondpart = pubKey.h.modPow(r, pubKey.n);
-		
-		/*
-		BigInteger secondpart = BigInteger.ONE;
-		for(long i = 0; i < r.bitLength(); ++i)
+		// First part = g^m, -1 is only used by Protocol 1/Modified Protocol 3 and is not in the table
+		BigInteger firstpart;
+		if (plaintext == -1)
 		{
-			//second part = h^r
-			if(NTL.bit(r, i) == 1)
-			{
-				if(pubKey.hLUT.get(i) == null)
-				{
-					// e = 2^i (mod n)
-					// f(i) = h^{2^i}(mod n)	
-					BigInteger e = TWO.pow((int) i).mod(pubKey.n);
-					pubKey.hLUT.put(i, pubKey.h.modPow(e, pubKey.n));
-				}
-				secondpart = secondpart.multiply(pubKey.hLUT.get(i));
-			}
+			firstpart = pubKey.g.modInverse(pubKey.n);
+		}
+		else
+		{
+			firstpart = pubKey.gPow(plaintext);
 		}
-		*/
-		ciphertext = NTL.POSMOD(firstpart.multiply(secondpart), pubKey.n);
-		return ciphertext;
+		// Second part = h^r, from the fixed-base table of h
+		BigInteger secondpart = pubKey.hPow(r);
+		return NTL.POSMOD(firstpart.multiply(secondpart), pubKey.n);
 	}
 
 	public static BigInteger decrypt(BigInteger ciphertext, DGKPrivateKey privKey)
@@ -471,14 +473,50 @@ public final class DGKOperations extends CipherSpi
 		c^vp (mod p) = g^{vp*m} (mod p)
 		Because h^{vp} (mod p) = 1
 		 */
-		Long plain = privKey.LUT.get(decipher);
-		if(plain == null)
+		long plain = privKey.log(decipher);
+		if(plain == -1)
 		{
 			throw new IllegalArgumentException("Issue: DGK Public/Private Key mismatch! OR Using non-DGK encrpyted value!");
 		}
 		return plain;
 	}
 
+	/*
+	 * c^vp (mod p) = g^{vp*m} (mod p) is 1 exactly when m = 0,
+	 * so a zero test needs the exponentiation but not the LUT.
+	 */
+	public static boolean isZero(DGKPrivateKey privKey, BigInteger ciphertext)
+	{
+		if (ciphertext.signum() == -1 || ciphertext.compareTo(privKey.n) == 1)
+		{
+			throw new IllegalArgumentException("isZero Invalid Parameter : the cipher text is not in Zn: " + ciphertext);
+		}
+		return ciphertext.modPow(privKey.vp, privKey.p).equals(BigInteger.ONE);
+	}
+	
+	// True if at least one ciphertext decrypts to 0, e.g. the c_i in Protocol 1/3
+	public static boolean anyZero(DGKPrivateKey privKey, BigInteger [] ciphertext)
+	{
+		return anyZero(privKey, ciphertext, Parallel.defaultPool());
+	}
+	
+	// Tests run in parallel, once a zero is found the remaining tests are skipped
+	public static boolean anyZero(final DGKPrivateKey privKey, final BigInteger [] ciphertext, ForkJoinPool pool)
+	{
+		final AtomicBoolean found = new AtomicBoolean(false);
+		Parallel.forEach(pool, ciphertext.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				if (!found.get() && isZero(privKey, ciphertext[i]))
+				{
+					found.set(true);
+				}
+			}
+		});
+		return found.get();
+	}
+
 	//[a] * [b] = [a * b]
 	public static BigInteger add(DGKPublicKey pubKey, BigInteger a, BigInteger b)
 	{
@@ -516,7 +554,12 @@ public final class DGKOperations extends CipherSpi
 	// [a]/[b] = [a - b]
 	public static BigInteger subtract(DGKPublicKey pubKey, BigInteger a, BigInteger b)
 	{
-		BigInteger minus_b = multiply(pubKey, b, pubKey.u - 1);
+		if (b.signum() ==-1 || b.compareTo(pubKey.n) == 1)
+		{
+			throw new IllegalArgumentException("DGKSubtract Invalid Parameter b: the ciphertext is not in Zn: " + b);
+		}
+		// [b]^{-1} = [-b], no need for a modPow by u - 1
+		BigInteger minus_b = b.modInverse(pubKey.n);
 		return add(pubKey, a, minus_b);
 	}
 
@@ -1,15 +1,21 @@
 package security.DGK;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.security.PrivateKey;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
+import security.generic.DiscreteLogTable;
 import security.generic.NTL;
+import security.generic.Parallel;
 
 public final class DGKPrivateKey implements Serializable, DGK_Key, PrivateKey
 {
@@ -20,7 +26,16 @@ public final class DGKPrivateKey implements Serializable, DGK_Key, PrivateKey
     protected final BigInteger q;
     protected final BigInteger vp;
     protected final BigInteger vq;
-    protected final Map <BigInteger, Long> LUT;
+    // Derived from the parameters above, built on the first decryption and never serialized
+    private transient volatile DiscreteLogTable LUT = null;
+    
+    // Baby-step/giant-step decryption if u is too large for a full LUT
+    // LUT holds gvp^j for j < baby_steps, giant = gvp^{-baby_steps} (mod p), null if the LUT is full
+    public final static long DEFAULT_TABLE_SIZE = 1 << 20;
+    protected final long baby_steps;
+    private transient volatile BigInteger giant = null;
+    // g^vp (mod p), the base of the LUT
+    private transient volatile BigInteger gvp = null;
     
     // Public key parameters
     protected final BigInteger n;
@@ -41,6 +56,20 @@ public final class DGKPrivateKey implements Serializable, DGK_Key, PrivateKey
     public DGKPrivateKey (BigInteger p, BigInteger q, BigInteger vp,
                           BigInteger vq, DGKPublicKey pubKey)
     {
+    	this(p, q, vp, vq, pubKey, DEFAULT_TABLE_SIZE);
+    }
+    
+    /**
+     * @param table_size - largest decryption table to keep. If u is larger,
+     * decryption uses a baby-step table of this size and about u/table_size giant steps.
+     */
+    public DGKPrivateKey (BigInteger p, BigInteger q, BigInteger vp,
+                          BigInteger vq, DGKPublicKey pubKey, long table_size)
+    {
+    	if (table_size < 1 || table_size > Integer.MAX_VALUE / 2)
+    	{
+    		throw new IllegalArgumentException("Decryption table size must be in [1, 2^30)!");
+    	}
     	// Fill Private Key Parameters
     	this.p = p;
         this.q = q;
@@ -60,11 +89,8 @@ public final class DGKPrivateKey implements Serializable, DGK_Key, PrivateKey
     	this.t = pubKey.t;
     	this.k = pubKey.k;
     	
-    	// I already know the size of my map, so just initialize the size now to avoid memory waste!
-    	this.LUT = new HashMap<BigInteger, Long>((int) this.u, (float) 1.0);
-    	
-    	// Now that I have public key parameters, build LUT!
-    	this.generategLUT();
+    	// The LUT itself is built when it is first needed, see generategLUT()
+    	this.baby_steps = Math.min(this.u, table_size);
     }
 
     private void readObject(ObjectInputStream aInputStream)
@@ -78,14 +104,92 @@ public final class DGKPrivateKey implements Serializable, DGK_Key, PrivateKey
         aOutputStream.defaultWriteObject();
     }
     
-    private void generategLUT()
+    // Build the LUT (and giant step) once, readers only see it after it is complete
+    private synchronized DiscreteLogTable generategLUT()
     {
+        if (this.LUT != null)
+        {
+            return this.LUT;
+        }
         BigInteger gvp = NTL.POSMOD(this.g.modPow(this.vp, this.p), this.p);
-        for (long i = 0; i < this.u; ++i)
+        DiscreteLogTable table = new DiscreteLogTable(gvp, this.p, (int) this.baby_steps);
+        if (this.baby_steps < this.u)
         {
-            BigInteger decipher = gvp.modPow(BigInteger.valueOf(i), this.p);
-            this.LUT.put(decipher, i);
+            this.giant = gvp.modPow(BigInteger.valueOf(this.baby_steps), this.p).modInverse(this.p);
         }
+        this.gvp = gvp;
+        this.LUT = table;
+        return table;
+    }
+    
+    // Build the decryption table now instead of on the first decryption
+    public void precompute()
+    {
+        generategLUT();
+    }
+    
+    /**
+     * m in [0, u) with gvp^m = decipher (mod p), or -1 if there is none.
+     * With a full LUT this is one lookup. Otherwise m = i * baby_steps + j, where
+     * decipher * giant^i = gvp^j is in the LUT. The giant steps are split into
+     * parallel strides that stop once any stride finds m.
+     * Most giant steps look up residues that are not in the LUT, which only compares
+     * fingerprints, so each hit is checked against gvp^m = decipher before it is accepted.
+     */
+    protected long log(final BigInteger decipher)
+    {
+    	DiscreteLogTable table = this.LUT;
+    	if (table == null)
+    	{
+    		table = generategLUT();
+    	}
+    	final DiscreteLogTable LUT = table;
+    	final BigInteger giant = this.giant;
+    	final BigInteger gvp = this.gvp;
+    	if (giant == null)
+    	{
+    		return LUT.get(decipher);
+    	}
+    	final long giant_steps = (this.u + this.baby_steps - 1) / this.baby_steps;
+    	final AtomicLong found = new AtomicLong(-1);
+    	final int strides = (int) Math.min(giant_steps, Parallel.defaultPool().getParallelism() * 4);
+    	final long stride = (giant_steps + strides - 1) / strides;
+    	Parallel.forEach(Parallel.defaultPool(), strides, new IntConsumer()
+    	{
+    		public void accept(int s)
+    		{
+    			long start = s * stride;
+    			long end = Math.min(giant_steps, start + stride);
+    			if (start >= end)
+    			{
+    				return;
+    			}
+    			BigInteger y = decipher.multiply(giant.modPow(BigInteger.valueOf(start), p)).mod(p);
+    			for (long i = start; i < end && found.get() == -1; i++)
+    			{
+    				long j = LUT.get(y);
+    				if (j != -1 && i * baby_steps + j < u
+    						&& gvp.modPow(BigInteger.valueOf(i * baby_steps + j), p).equals(decipher))
+    				{
+    					found.compareAndSet(-1, i * baby_steps + j);
+    					return;
+    				}
+    				y = y.multiply(giant).mod(p);
+    			}
+    		}
+    	});
+    	return found.get();
+    }
+    
+    // True if decryption uses baby-step/giant-step instead of a full LUT
+    public boolean isBSGS()
+    {
+    	return this.baby_steps < this.u;
+    }
+    
+    public long getTableSize()
+    {
+    	return this.baby_steps;
     }
 	
 	// Not going to print private key parameters...
@@ -125,11 +229,56 @@ public final class DGKPrivateKey implements Serializable, DGK_Key, PrivateKey
 
 	public String getFormat() 
 	{
-		return "PKCS#8";
+		return "DGK";
 	}
 
+	/**
+	 * Fixed layout of the key parameters only: the public part as in DGKPublicKey.getEncoded(),
+	 * then p, q, vp, vq and the decryption table size. The LUT is rebuilt by the receiver.
+	 */
 	public byte[] getEncoded() 
 	{
-		return null;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try
+		{
+			DGKPublicKey.encode(out, this.n, this.g, this.h, this.bigU, this.l, this.t, this.k);
+			DGKPublicKey.write(out, this.p);
+			DGKPublicKey.write(out, this.q);
+			DGKPublicKey.write(out, this.vp);
+			DGKPublicKey.write(out, this.vq);
+			out.writeLong(this.baby_steps);
+			out.flush();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	// Inverse of getEncoded(), returns the key pair's private key, see getPublicKey() for the public one
+	public static DGKPrivateKey decode(byte [] encoded)
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+		try
+		{
+			DGKPublicKey pubKey = DGKPublicKey.decode(in);
+			BigInteger p = DGKPublicKey.read(in);
+			BigInteger q = DGKPublicKey.read(in);
+			BigInteger vp = DGKPublicKey.read(in);
+			BigInteger vq = DGKPublicKey.read(in);
+			long table_size = in.readLong();
+			return new DGKPrivateKey(p, q, vp, vq, pubKey, table_size);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalArgumentException("Invalid DGK private key encoding!", e);
+		}
+	}
+	
+	public DGKPublicKey getPublicKey()
+	{
+		return new DGKPublicKey(this.n, this.g, this.h, this.bigU, this.l, this.t, this.k);
 	}
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package security.DGK;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.security.PublicKey;
-import java.util.HashMap;
 
 import security.generic.CipherConstants;
+import security.generic.DiscreteLogTable;
+import security.generic.FixedBaseTable;
 
 public final class DGKPublicKey implements Serializable, DGK_Key, PublicKey, Runnable, CipherConstants
 {
@@ -19,8 +24,15 @@ public final class DGKPublicKey implements Serializable, DGK_Key, PublicKey, Run
 	protected final BigInteger h;
 	protected final long u;
 	protected final BigInteger bigU;
-	protected final HashMap <Long, BigInteger> gLUT = new HashMap<Long, BigInteger>();
-	protected final HashMap <Long, BigInteger> hLUT = new HashMap<Long, BigInteger>();
+	// gLUT[m] = g^m (mod n), immutable once published, null until built
+	private transient volatile BigInteger [] gLUT = null;
+	// Default window for the h^r table: 2t/8 rows of 255 residues, about 1.3 MB for t = 160
+	public final static int DEFAULT_H_WINDOW = 8;
+	// Fixed-base table for h^r with 2t-bit r, null until built
+	private transient volatile FixedBaseTable hLUT = null;
+	
+	// Pool of precomputed encryptions of small constants, set by DGKEncryptionPool.bind
+	protected transient volatile DGKEncryptionPool encryptions = null;
 	
 	// Key Parameters
 	protected final int l;
@@ -67,6 +79,11 @@ public final class DGKPublicKey implements Serializable, DGK_Key, PublicKey, Run
 		return "DGK";
 	}
 	
+	public DGKEncryptionPool getEncryptionPool()
+	{
+		return this.encryptions;
+	}
+	
     public String toString()
     {
     	String answer = "";
@@ -82,12 +99,93 @@ public final class DGKPublicKey implements Serializable, DGK_Key, PublicKey, Run
     
 	public String getFormat() 
 	{
-		return "X.509";
+		return "DGK";
 	}
 
+	// Layout version of getEncoded()
+	protected final static int ENCODING_VERSION = 1;
+	
+	/**
+	 * Fixed layout of the key parameters only: version, l, t, k, then n, g, h, u
+	 * each as a length-prefixed two's-complement BigInteger.
+	 * The g^m and h^r tables are not sent, the receiver rebuilds them on first use.
+	 */
 	public byte[] getEncoded() 
 	{
-		return null;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try
+		{
+			encode(out, this.n, this.g, this.h, this.bigU, this.l, this.t, this.k);
+			out.flush();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	// Inverse of getEncoded()
+	public static DGKPublicKey decode(byte [] encoded)
+	{
+		try
+		{
+			return decode(new DataInputStream(new ByteArrayInputStream(encoded)));
+		}
+		catch (IOException e)
+		{
+			throw new IllegalArgumentException("Invalid DGK public key encoding!", e);
+		}
+	}
+	
+	protected static void encode(DataOutputStream out, BigInteger n, BigInteger g, BigInteger h, BigInteger u,
+			int l, int t, int k) throws IOException
+	{
+		out.writeInt(ENCODING_VERSION);
+		out.writeInt(l);
+		out.writeInt(t);
+		out.writeInt(k);
+		write(out, n);
+		write(out, g);
+		write(out, h);
+		write(out, u);
+	}
+	
+	protected static DGKPublicKey decode(DataInputStream in) throws IOException
+	{
+		int version = in.readInt();
+		if (version != ENCODING_VERSION)
+		{
+			throw new IOException("Unknown DGK key encoding version: " + version);
+		}
+		int l = in.readInt();
+		int t = in.readInt();
+		int k = in.readInt();
+		BigInteger n = read(in);
+		BigInteger g = read(in);
+		BigInteger h = read(in);
+		BigInteger u = read(in);
+		return new DGKPublicKey(n, g, h, u, l, t, k);
+	}
+	
+	protected static void write(DataOutputStream out, BigInteger x) throws IOException
+	{
+		byte [] b = x.toByteArray();
+		out.writeInt(b.length);
+		out.write(b);
+	}
+	
+	protected static BigInteger read(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if (length <= 0 || length > in.available())
+		{
+			throw new IOException("Invalid BigInteger length: " + length);
+		}
+		byte [] b = new byte[length];
+		in.readFully(b);
+		return new BigInteger(b);
 	}
 
 	public void run() 
@@ -97,24 +195,61 @@ public final class DGKPublicKey implements Serializable, DGK_Key, PublicKey, Run
 	}
 	
 	private void generatehLUT()
-	{		
-		for (long i = 0; i < 2 * t; ++i)
+	{
+		if (this.hLUT == null)
+		{
+			this.hLUT = new FixedBaseTable(this.h, this.n, 2 * this.t, DEFAULT_H_WINDOW);
+		}
+	}
+	
+	/**
+	 * Rebuild the h^r table with a different window size.
+	 * A w-bit window keeps (2t/w) * (2^w - 1) residues and needs 2t/w multiplications per encryption.
+	 */
+	public void precompute(int window)
+	{
+		this.hLUT = new FixedBaseTable(this.h, this.n, 2 * this.t, window);
+	}
+	
+	// h^r (mod n)
+	protected BigInteger hPow(BigInteger r)
+	{
+		FixedBaseTable table = this.hLUT;
+		if (table == null)
+		{
+			table = new FixedBaseTable(this.h, this.n, 2 * this.t, DEFAULT_H_WINDOW);
+			this.hLUT = table;
+		}
+		return table.pow(r);
+	}
+	
+	// Largest u for which g^m is kept in a table
+	public final static long MAX_GLUT_SIZE = 1 << 20;
+	
+	// Build the full table before it is published, so readers never see a partial table
+	private synchronized void generategLUT()
+	{
+		if (this.gLUT != null || this.u > MAX_GLUT_SIZE)
 		{
-			// e = 2^i (mod n)
-			// h^{2^i (mod n)} (mod n)
-			// f(i) = h^{2^i}(mod n)
-			BigInteger e = TWO.pow((int) i).mod(this.n);
-			this.hLUT.put(i, this.h.modPow(e, this.n));
+			return;
 		}
+		this.gLUT = DiscreteLogTable.powers(this.g, this.n, (int) this.u);
 	}
 	
-	private void generategLUT()
-	{	
-		for (long i = 0; i < this.u; ++i)
+	// g^m (mod n) for m in [0, u), from the table if u is small enough to keep one
+	protected BigInteger gPow(long m)
+	{
+		BigInteger [] table = this.gLUT;
+		if (table == null)
 		{
-			BigInteger out = this.g.modPow(BigInteger.valueOf(i), this.n);
-			this.gLUT.put(i, out);
+			if (this.u > MAX_GLUT_SIZE)
+			{
+				return this.g.modPow(BigInteger.valueOf(m), this.n);
+			}
+			generategLUT();
+			table = this.gLUT;
 		}
+		return table[(int) m];
 	}
 
 	public BigInteger getU() 
@@ -0,0 +1,629 @@
+package security.damgardjurik;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.CipherSpi;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+
+import security.generic.MultiExponentiation;
+import security.generic.NTL;
+import security.generic.Parallel;
+
+public final class DamgardJurikCipher extends CipherSpi
+{
+	protected int stateMode;
+	protected Key keyDJ;
+	protected SecureRandom SECURE_RANDOM;
+	protected int plaintextSize;
+	protected int ciphertextSize;
+	
+	/**
+	 * This class support no modes, so engineSetMode() throw exception when
+	 * called.
+	 */
+	protected final void engineSetMode(String mode)
+			throws NoSuchAlgorithmException 
+	{
+		throw new NoSuchAlgorithmException("Damgard-Jurik supports no modes.");
+	}
+
+	/**
+	 * This class support no padding, so engineSetPadding() throw exception when
+	 * called.
+	 */
+	protected final void engineSetPadding(String padding)
+			throws NoSuchPaddingException 
+	{
+		throw new NoSuchPaddingException("Damgard-Jurik supports no padding.");
+	}
+
+	/**
+	 * Perform actual encryption ,creates single array and updates the result
+	 * after the encryption.
+	 * 
+	 * @param input
+	 *            - the input in bytes
+	 * @param inputOffset
+	 *            - the offset in input where the input starts always zero
+	 * @param inputLenth
+	 *            - the input length
+	 * @param output
+	 *            - the buffer for the result
+	 * @param outputOffset
+	 *            - the offset in output where the result is stored
+	 * @return the number of bytes stored in output
+	 * @throws Exception
+	 *             throws if Plaintext m is not in Z_n , m should be less then n
+	 */
+	protected final int encrypt(byte[] input, int inputOffset, int inputLenth,
+			byte[] output, int outputOffset) throws Exception
+	{
+		BigInteger m = new BigInteger(input);
+
+		// get the public key in order to encrypt
+		byte [] cBytes = encrypt(m, (DamgardJurikPublicKey) keyDJ).toByteArray();
+		System.arraycopy(cBytes, 0, output, ciphertextSize - cBytes.length, cBytes.length);
+		return ciphertextSize;
+	}
+
+	/**
+	 * Perform actual decryption ,creates single array for the output and updates
+	 * the result after the decryption.
+	 * 
+	 * @param input
+	 *            - the input in bytes
+	 * @param inputOffset
+	 *            - the offset in input where the input starts always zero
+	 * @param inputLenth
+	 *            - the input length
+	 * @param output
+	 *            - the buffer for the result
+	 * @param outputOffset
+	 *            - the offset in output where the result is stored
+	 * @return the number of bytes stored in output
+	 */
+	protected final int decrypt(byte[] input, int inputOffset, int inputLenth,
+			byte[] output, int outputOffset)
+	{
+		DamgardJurikPrivateKey key = (DamgardJurikPrivateKey) keyDJ;
+
+		// extract c
+		byte[] cBytes = new byte[input.length];
+		System.arraycopy(input, inputOffset, cBytes, 0, input.length);
+		
+		// calculate the message
+		byte[] messageBytes = decrypt(new BigInteger(cBytes), key).toByteArray();
+		int gatedLength = Math.min(messageBytes.length, plaintextSize);
+		System.arraycopy(messageBytes, 0, output, plaintextSize - gatedLength, gatedLength);
+		return plaintextSize;
+	}
+
+	/**
+	 * DamgardJurikCipher doesn't recognise any algorithm - specific initialisations
+	 * so the algorithm specific engineInit() just calls the previous overloaded
+	 * version of engineInit()
+	 * 
+	 * @param opmode
+	 *            -cipher mode
+	 * @param key
+	 *            - Key
+	 * @param params
+	 *            - AlgorithmParameterSpec
+	 * @see javax.crypto.CipherSpi#engineInit(int, java.security.Key,
+	 *      java.security.spec.AlgorithmParameterSpec,
+	 *      java.security.SecureRandom)
+	 */
+
+	protected final void engineInit(int opmode, Key key,
+			AlgorithmParameterSpec params, SecureRandom random)
+			throws InvalidKeyException, InvalidAlgorithmParameterException
+	{
+		engineInit(opmode, key, random);
+	}
+
+	protected final void engineInit(int opmode, Key key, AlgorithmParameters params,
+			SecureRandom random) throws InvalidKeyException, InvalidAlgorithmParameterException 
+	{
+		engineInit(opmode, key, random);
+	}
+
+	/**
+	 * Calls the second overloaded version of the same method.
+	 * 
+	 * @return the result from encryption or decryption
+	 */
+	protected final byte[] engineUpdate(byte[] input, int inputOffset, int inputLen) 
+	{
+		byte[] out = new byte[engineGetOutputSize(inputLen)];
+		try 
+		{
+			 engineUpdate(input, inputOffset, inputLen, out, 0);
+		} 
+		catch (ShortBufferException sbe) 
+		{
+
+		}
+		return out;
+	}
+
+	/**
+	 * Creates a single input array from the buffered data and supplied input
+	 * data. Calculates the location and the length of the last fractional block
+	 * in the input data. Transforms all full blocks in the input data. Save the
+	 * last fractional block in the internal buffer.
+	 * 
+	 * @param input
+	 *            - the input in bytes
+	 * @param inputOffset
+	 *            - the offset in input where the input starts always zero
+	 * @param inputLen
+	 *            - the input length
+	 * @param output
+	 *            - the buffer for the result
+	 * @param outputOffset
+	 *            - the offset in output where the result is stored
+	 * @return the number of bytes stored in output
+	 */
+	protected final int engineUpdate(byte[] input, int inputOffset, int inputLen,
+			byte[] output, int outputOffset) throws ShortBufferException 
+	{
+		if (stateMode == Cipher.ENCRYPT_MODE)
+		{
+			try 
+			{
+				return encrypt(input, inputOffset, inputLen, output, outputOffset);
+			} 
+			catch (Exception e) 
+			{
+				e.printStackTrace();
+			}
+		}
+		else if (stateMode == Cipher.DECRYPT_MODE)
+		{
+			return decrypt(input, inputOffset, inputLen, output, outputOffset);
+		}
+		return 0;
+	}
+
+	/**
+	 * Calls the second overloaded version of the same method,
+	 * to perform the required operation based on the state of the cipher.
+	 * 
+	 * @return returns the result from encryption or decryption
+	 */
+	protected final byte[] engineDoFinal(byte[] input, int inputOffset, int inputLen)
+			throws IllegalBlockSizeException, BadPaddingException
+	{
+
+		byte [] out = new byte[engineGetOutputSize(inputLen)];
+		try 
+		{
+			engineDoFinal(input, inputOffset, inputLen, out, 0);
+		} 
+		catch (ShortBufferException sbe)
+		{
+			
+		}
+		return out;
+	}
+
+	/**
+	 * Calls encrypt or decrypt based on the state of the cipher. Creates a
+	 * single input array from the supplied input data. And returns number of
+	 * bytes stored in output.
+	 * 
+	 * @param input
+	 *            - the input buffer
+	 * @param inputOffset
+	 *            - the offset in input where the input starts always zero
+	 * @param inputLen
+	 *            - the input length
+	 * @param output
+	 *            - the buffer for the result
+	 * @param outputOffset
+	 *            - the offset in output where the result is stored
+	 * @return the number of bytes stored in output
+	 */
+	protected final int engineDoFinal(byte[] input, int inputOffset, int inputLen,
+			byte[] output, int outputOffset)
+					throws ShortBufferException, IllegalBlockSizeException, BadPaddingException
+	{
+		// Create a single array of input data
+		byte[] totalInput = new byte[inputLen];
+		if (inputLen > 0)
+		{
+			System.arraycopy(input, inputOffset, totalInput, 0, inputLen);
+		}
+		if (stateMode == Cipher.ENCRYPT_MODE)
+		{
+			try 
+			{
+				return encrypt(input, inputOffset, inputLen, output, outputOffset);	
+			} 
+			catch (Exception e) 
+			{
+				e.printStackTrace();
+			}
+		}
+		else if (stateMode == Cipher.DECRYPT_MODE)
+		{
+			return decrypt(input, inputOffset, inputLen, output, outputOffset);
+		}
+		return 0;
+	}
+
+	/**
+	 * This method returns the appropriate block size , based on cipher.
+	 * 
+	 * @return BlockSize - the block size(in bytes).
+	 */
+	protected final int engineGetBlockSize() 
+	{
+		if (stateMode == Cipher.DECRYPT_MODE)
+		{
+			return ciphertextSize ;
+		}
+		else
+		{
+			return plaintextSize ;
+		}
+	}
+
+	/**
+	 * This method returns null.
+	 */
+	protected final byte[] engineGetIV()
+	{
+		return null;
+	}
+
+	/**
+	 * Return  the size based on the state of the cipher. This is one 
+	 * shot encryption or decryption, no need to calculate internal buffer.
+	 * @param inputLen
+	 *            the input length (in bytes)
+	 * @return outLength - the required output size (in bytes)
+	 */
+	protected final int engineGetOutputSize(int inputLen)
+	{
+		if (stateMode == Cipher.ENCRYPT_MODE) 
+		{
+			return ciphertextSize;
+		} 
+		else 
+		{
+			return plaintextSize;
+		}
+	}
+
+	protected final AlgorithmParameters engineGetParameters() 
+	{
+		return null;
+	}
+
+	/**
+	 * Initialises this cipher with key and a source of randomness
+	 */
+	protected final void engineInit(int mode, Key key, SecureRandom random)
+			throws InvalidKeyException 
+	{
+		if (mode == Cipher.ENCRYPT_MODE)
+		{
+			if (!(key instanceof DamgardJurikPublicKey))
+			{
+				throw new InvalidKeyException("I didn't get a DamgardJurikPublicKey!");
+			}
+		}
+		else if (mode == Cipher.DECRYPT_MODE)
+		{
+			if (!(key instanceof DamgardJurikPrivateKey))
+			{
+				throw new InvalidKeyException("I didn't get a DamgardJurikPrivateKey!");
+			}
+		}		
+		else
+		{
+			throw new IllegalArgumentException("Bad mode: " + mode);
+		}
+		this.stateMode = mode;
+		this.keyDJ = key;
+		this.SECURE_RANDOM = random;
+		int modulusLength = ((DamgardJurikKey) key).getN().bitLength();
+		calculateBlockSizes(modulusLength, ((DamgardJurikKey) key).getS());
+	}
+
+	/**
+	 * Calculates the size of the plaintext block and a ciphertext block, based
+	 * on the size of the key used to initialise the cipher. The plaintext is
+	 * s times the length of n, the ciphertext is s + 1 times the length of n,
+	 * plus one byte each for the sign bit of toByteArray().
+	 * 
+	 * @param modulusLength
+	 *            - n = p*q
+	 * @param s
+	 *            - the Damgard-Jurik exponent
+	 */
+	protected final void calculateBlockSizes(int modulusLength, int s)
+	{
+		plaintextSize = ((s * modulusLength + 8) / 8);
+		ciphertextSize = (((s + 1) * modulusLength + 8) / 8);
+	}
+	
+	// -------------------------PUBLIC FACING METHODS---------------------------------
+	public void init(int encryptMode, DamgardJurikPublicKey pk) 
+			throws InvalidKeyException, InvalidAlgorithmParameterException
+	{
+		engineInit(encryptMode, pk, new SecureRandom());
+	}
+
+	public void init(int decryptMode, DamgardJurikPrivateKey sk)
+			throws InvalidKeyException, InvalidAlgorithmParameterException 
+	{
+		engineInit(decryptMode, sk, new SecureRandom());
+	}
+		
+	public byte[] doFinal(byte[] bytes) 
+			throws BadPaddingException, IllegalBlockSizeException 
+	{
+		return engineDoFinal(bytes, 0, bytes.length);	
+	}
+
+	//-----------------------BigInteger Damgard-Jurik----------------------------------------------
+
+    // Compute ciphertext = (1 + n)^m * r^{n^s} (mod n^{s+1})
+    public static BigInteger encrypt(BigInteger plaintext, DamgardJurikPublicKey pk) 
+    {
+		if (plaintext.signum() == -1)
+		{
+			throw new IllegalArgumentException("Encryption Invalid Parameter: the plaintext is not in Z_{n^s} (plaintext < 0)"
+					+ " value of Plain Text is: " + plaintext);
+		}
+		else if (plaintext.compareTo(pk.ns) >= 0)
+		{
+			throw new IllegalArgumentException("Encryption Invalid Parameter: the plaintext is not in Z_{n^s}"
+					+ " (plaintext >= n^s) value of Plain Text is: " + plaintext);
+		}
+		BigInteger randomness = NTL.RandomBnd(pk.n);
+		BigInteger tmp1 = g_pow(plaintext, pk);
+		BigInteger tmp2 = randomness.modPow(pk.ns, pk.modulus);
+		return tmp1.multiply(tmp2).mod(pk.modulus);
+    }
+    
+    public static BigInteger encrypt(long plaintext, DamgardJurikPublicKey pk) 
+    {
+    	return DamgardJurikCipher.encrypt(BigInteger.valueOf(plaintext), pk);
+    }
+    
+    public static BigInteger [] encryptAll(final BigInteger [] plaintext, final DamgardJurikPublicKey pk)
+    {
+    	final BigInteger [] ciphertext = new BigInteger[plaintext.length];
+    	Parallel.forEach(Parallel.defaultPool(), plaintext.length, new IntConsumer()
+    	{
+    		public void accept(int i)
+    		{
+    			ciphertext[i] = encrypt(plaintext[i], pk);
+    		}
+    	});
+    	return ciphertext;
+    }
+    
+    // Compute c^d = (1 + n)^m (mod n^{s+1}), then take the discrete log base (1 + n)
+    public static BigInteger decrypt(BigInteger ciphertext, DamgardJurikPrivateKey sk)
+    {
+		if (ciphertext.signum() == -1)
+		{
+			throw new IllegalArgumentException("decryption Invalid Parameter : the cipher text is not in Z_{n^{s+1}}, "
+					+ "value of cipher text is: (c < 0): " + ciphertext);
+		}
+		else if (ciphertext.compareTo(sk.modulus) >= 0)
+		{
+			throw new IllegalArgumentException("decryption Invalid Parameter : the cipher text is not in Z_{n^{s+1}},"
+					+ " value of cipher text is: (c >= n^{s+1}): " + ciphertext);
+		}
+		return log(ciphertext.modPow(sk.d, sk.modulus), sk.n, sk.s);
+    }
+    
+    public static BigInteger [] decryptAll(final BigInteger [] ciphertext, final DamgardJurikPrivateKey sk)
+    {
+    	final BigInteger [] plaintext = new BigInteger[ciphertext.length];
+    	Parallel.forEach(Parallel.defaultPool(), ciphertext.length, new IntConsumer()
+    	{
+    		public void accept(int i)
+    		{
+    			plaintext[i] = decrypt(ciphertext[i], sk);
+    		}
+    	});
+    	return plaintext;
+    }
+    
+    /*
+     * Given a = (1 + n)^i (mod n^{s+1}), recover i (mod n^s) one power of n at a time.
+     * See Damgard and Jurik, "A Generalisation, a Simplification and Some
+     * Applications of Paillier's Probabilistic Public-Key System" (2001), Section 3.
+     */
+    protected static BigInteger log(BigInteger a, BigInteger n, int s)
+    {
+    	BigInteger i = BigInteger.ZERO;
+    	BigInteger nj = BigInteger.ONE;
+    	for (int j = 1; j <= s; j++)
+    	{
+    		// nj = n^j
+    		nj = nj.multiply(n);
+    		BigInteger t1 = L(a.mod(nj.multiply(n)), n);
+    		BigInteger t2 = i;
+    		BigInteger factorial = BigInteger.ONE;
+    		BigInteger nk = BigInteger.ONE;
+    		for (int k = 2; k <= j; k++)
+    		{
+    			i = i.subtract(BigInteger.ONE);
+    			t2 = t2.multiply(i).mod(nj);
+    			factorial = factorial.multiply(BigInteger.valueOf(k));
+    			// nk = n^{k-1}
+    			nk = nk.multiply(n);
+    			t1 = t1.subtract(t2.multiply(nk).multiply(factorial.modInverse(nj))).mod(nj);
+    		}
+    		i = t1.mod(nj);
+    	}
+    	return i;
+    }
+    
+    // (1 + n)^m = sum_{k=0}^{s} C(m, k) n^k (mod n^{s+1}), no exponentiation needed
+    protected static BigInteger g_pow(BigInteger plaintext, DamgardJurikPublicKey pk)
+    {
+    	if (plaintext.signum() < 0)
+    	{
+    		return g_pow(plaintext.mod(pk.ns), pk);
+    	}
+    	BigInteger answer = BigInteger.ONE;
+    	BigInteger binomial = BigInteger.ONE;
+    	BigInteger nk = BigInteger.ONE;
+    	for (int k = 1; k <= pk.s; k++)
+    	{
+    		// C(m, k) = C(m, k - 1) * (m - k + 1) / k, exact over the integers
+    		binomial = binomial.multiply(plaintext.subtract(BigInteger.valueOf(k - 1))).divide(BigInteger.valueOf(k));
+    		if (binomial.signum() == 0)
+    		{
+    			break;
+    		}
+    		nk = nk.multiply(pk.n);
+    		answer = answer.add(binomial.mod(pk.modulus).multiply(nk));
+    	}
+    	return answer.mod(pk.modulus);
+    }
+    
+    // L(u) = (u - 1)/n
+    protected static BigInteger L(BigInteger u, BigInteger n) 
+    {
+        return u.subtract(BigInteger.ONE).divide(n);
+    }
+
+    // On input two encrypted values, returns an encryption of the sum of the values
+    public static BigInteger add(BigInteger ciphertext1, BigInteger ciphertext2, DamgardJurikPublicKey pk)
+    {
+        return ciphertext1.multiply(ciphertext2).mod(pk.modulus);
+    }
+    
+    public static BigInteger add_plaintext(BigInteger ciphertext, BigInteger plaintext, DamgardJurikPublicKey pk)
+    {
+        return ciphertext.multiply(g_pow(plaintext, pk)).mod(pk.modulus);
+    }
+    
+    public static BigInteger add_plaintext(BigInteger ciphertext, long plaintext, DamgardJurikPublicKey pk)
+    {
+        return add_plaintext(ciphertext, BigInteger.valueOf(plaintext), pk);
+    }
+    
+    public static BigInteger subtract(BigInteger ciphertext1, BigInteger ciphertext2, DamgardJurikPublicKey pk)
+    {
+    	return ciphertext1.multiply(ciphertext2.modInverse(pk.modulus)).mod(pk.modulus);
+    }
+    
+    // On input an encrypted value [[x]] and a scalar c, returns an encryption of [[cx]].
+    public static BigInteger multiply(BigInteger ciphertext1, BigInteger scalar, DamgardJurikPublicKey pk)
+    {
+        return ciphertext1.modPow(scalar, pk.modulus);
+    }
+
+    public static BigInteger multiply(BigInteger ciphertext1, long scalar, DamgardJurikPublicKey pk) 
+    {
+        return multiply(ciphertext1, BigInteger.valueOf(scalar), pk);
+    }
+    
+	/*
+	 * Please note: Divide will only work correctly on perfect divisor
+	 * 2|20, it will work.
+	 * if you try 3|20, it will NOT work and you will get a wrong answer!
+	 */
+	public static BigInteger divide(BigInteger ciphertext, long divisor, DamgardJurikPublicKey pk)
+	{
+		return divide(ciphertext, BigInteger.valueOf(divisor), pk);
+	}
+	
+	public static BigInteger divide(BigInteger ciphertext, BigInteger divisor, DamgardJurikPublicKey pk)
+	{
+		return multiply(ciphertext, divisor.modInverse(pk.ns), pk);
+	}
+    
+	// Same as PaillierCipher, tree-reduced and no encryption of 0, an empty sum is 1
+	public static BigInteger sum(BigInteger [] values, DamgardJurikPublicKey pk)
+	{
+		return sum(values, pk, values.length);
+	}
+	
+	public static BigInteger sum(final BigInteger [] values, final DamgardJurikPublicKey pk, int limit)
+	{
+		BigInteger sum = Parallel.reduce(Parallel.defaultPool(), Math.min(limit, values.length), new IntFunction<BigInteger>()
+		{
+			public BigInteger apply(int i)
+			{
+				return values[i];
+			}
+		}, new BinaryOperator<BigInteger>()
+		{
+			public BigInteger apply(BigInteger ciphertext1, BigInteger ciphertext2)
+			{
+				return add(ciphertext1, ciphertext2, pk);
+			}
+		});
+		if (sum == null)
+		{
+			return BigInteger.ONE;
+		}
+		return sum;
+	}
+	
+	public static BigInteger summation(List<BigInteger> values, DamgardJurikPublicKey pk)
+	{
+		return summation(values, pk, values.size());
+	}
+	
+	public static BigInteger summation(List<BigInteger> values, DamgardJurikPublicKey pk, int limit)
+	{
+		BigInteger [] array = values.subList(0, Math.max(0, Math.min(limit, values.size()))).toArray(new BigInteger[0]);
+		return sum(array, pk, array.length);
+	}
+	
+	public static BigInteger sum_product (DamgardJurikPublicKey pk, List<BigInteger> cipher, List<Long> plain)
+	{
+		if(cipher.size() != plain.size())
+		{
+			throw new IllegalArgumentException("Arrays are NOT the same size!");
+		}
+		long [] exponents = new long[plain.size()];
+		int i = 0;
+		for (Long scalar : plain)
+		{
+			exponents[i++] = scalar;
+		}
+		return MultiExponentiation.multiexp(cipher.toArray(new BigInteger[cipher.size()]), exponents, pk.modulus);
+	}
+	
+	public static BigInteger sum_product (DamgardJurikPublicKey pk, BigInteger[] cipher, Long[] plain)
+	{
+		if(cipher.length != plain.length)
+		{
+			throw new IllegalArgumentException("Arrays are NOT the same size!");
+		}
+		long [] exponents = new long[plain.length];
+		for (int i = 0; i < exponents.length; i++)
+		{
+			exponents[i] = plain[i];
+		}
+		return MultiExponentiation.multiexp(cipher, exponents, pk.modulus);
+	}
+}
@@ -0,0 +1,10 @@
+package security.damgardjurik;
+
+import java.math.BigInteger;
+
+public interface DamgardJurikKey 
+{
+	public BigInteger getN();
+	public BigInteger getModulus();
+	public int getS();
+}
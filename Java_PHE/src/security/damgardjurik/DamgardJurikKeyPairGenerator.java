@@ -0,0 +1,96 @@
+package security.damgardjurik;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGeneratorSpi;
+import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import security.generic.CipherConstants;
+
+public class DamgardJurikKeyPairGenerator extends KeyPairGeneratorSpi implements CipherConstants
+{
+	private int keysize = 1024;
+	// Plaintext space is n^s, ciphertext space is n^{s+1}
+	private int s = 2;
+	private SecureRandom rnd = null;
+	
+	public DamgardJurikKeyPairGenerator()
+	{
+		
+	}
+	
+	public DamgardJurikKeyPairGenerator(int s)
+	{
+		this.setS(s);
+	}
+	
+	public void initialize(int keysize, SecureRandom random) 
+	{
+		this.rnd = random;
+		if (keysize % 2 != 0)
+		{
+			throw new IllegalArgumentException("NUMBER OF BITS SHOULD BE EVEN!");
+		}
+		
+		// I will NOT allow weaker than 1024 bit keys!
+		if (keysize < 1024)
+		{
+			return;
+		}		
+		this.keysize = keysize;
+	}
+	
+	public int getS()
+	{
+		return s;
+	}
+	
+	public void setS(int s)
+	{
+		if (s < 1)
+		{
+			throw new IllegalArgumentException("Damgard-Jurik Invalid parameters: s must be at least 1");
+		}
+		this.s = s;
+	}
+
+	public KeyPair generateKeyPair() 
+	{
+		if (this.rnd == null)
+		{
+			rnd = new SecureRandom();
+		}
+		
+		// Search for q on another worker while this thread searches for p
+		final SecureRandom random = this.rnd;
+		final int bits = keysize/2;
+		ForkJoinTask<BigInteger> find_q = ForkJoinPool.commonPool().submit(new Callable<BigInteger>()
+		{
+			public BigInteger call()
+			{
+				return new BigInteger(bits, CERTAINTY, random);
+			}
+		});
+		BigInteger p = new BigInteger(bits, CERTAINTY, rnd);
+		BigInteger q = find_q.join();
+		while (p.equals(q))
+		{
+			q = new BigInteger(bits, CERTAINTY, rnd);
+		}
+		
+		BigInteger n = p.multiply(q);
+		// lcm(p - 1, q - 1)
+		BigInteger p_1 = p.subtract(BigInteger.ONE);
+		BigInteger q_1 = q.subtract(BigInteger.ONE);
+		BigInteger lambda = p_1.multiply(q_1).divide(p_1.gcd(q_1));
+		
+		DamgardJurikPublicKey pk = new DamgardJurikPublicKey(this.keysize, this.s, n);
+		DamgardJurikPrivateKey sk = new DamgardJurikPrivateKey(this.keysize, this.s, n, lambda);
+		
+		System.out.println("Completed building Damgard-Jurik Key Pair!");
+		return new KeyPair(pk, sk);
+	}
+}
@@ -0,0 +1,113 @@
+package security.damgardjurik;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.security.PrivateKey;
+
+public final class DamgardJurikPrivateKey implements Serializable, DamgardJurikKey, PrivateKey
+{
+	private static final long serialVersionUID = 5245712853307412340L;
+
+	// Number of bits in n
+	private final int key_size;
+	protected final int s;
+
+	protected final BigInteger n;
+	protected final BigInteger ns;
+	protected final BigInteger modulus;
+	
+	protected final BigInteger lambda;
+	// d = 0 (mod lambda) and d = 1 (mod n^s), so c^d = (1 + n)^m (mod n^{s+1})
+	protected final BigInteger d;
+	
+	public DamgardJurikPrivateKey(int key_size, int s, BigInteger n, BigInteger lambda)
+	{
+		this.key_size = key_size;
+		this.s = s;
+		this.n = n;
+		this.ns = n.pow(s);
+		this.modulus = this.ns.multiply(n);
+		this.lambda = lambda;
+		this.d = lambda.multiply(lambda.modInverse(this.ns));
+	}
+	
+	private void readObject(ObjectInputStream aInputStream) 
+			throws ClassNotFoundException, IOException
+	{
+		aInputStream.defaultReadObject();
+	}
+
+	private void writeObject(ObjectOutputStream aOutputStream) throws IOException
+	{
+		aOutputStream.defaultWriteObject();
+	}
+	
+	public boolean equals(Object o)
+	{
+		if (!(o instanceof DamgardJurikPrivateKey))
+		{
+			return false;
+		}
+
+		if (o == this)
+		{
+			return true;
+		}
+		DamgardJurikPrivateKey key = (DamgardJurikPrivateKey) o;
+		return s == key.s && n.equals(key.n) && lambda.equals(key.lambda);
+	}
+	
+	public int hashCode()
+	{
+		return n.hashCode();
+	}
+
+	// Omitting secret key parameters
+	public String toString()
+	{
+		String answer = "";
+		answer += "key_size = " + this.key_size + ", " + '\n';
+		answer += "s =        " + this.s + ", " + '\n';
+		answer += "n =        " + this.n + ", " + '\n';
+		answer += "modulus =  " + this.modulus + '\n';
+		return answer;
+	}
+	
+	public int get_Keysize() 
+	{
+		return key_size;
+	}
+	
+	public BigInteger getN()
+	{
+		return n;
+	}
+	
+	public BigInteger getModulus() 
+	{
+		return modulus;
+	}
+	
+	public int getS()
+	{
+		return s;
+	}
+	
+	public String getAlgorithm() 
+	{
+		return "DamgardJurik";
+	}
+
+	public String getFormat() 
+	{
+		return "PKCS#8";
+	}
+	
+	public byte[] getEncoded() 
+	{
+		return null;
+	}
+}
@@ -0,0 +1,15 @@
+package security.damgardjurik;
+
+import java.security.Provider;
+
+public class DamgardJurikProvider extends Provider 
+{
+	private static final long serialVersionUID = 3960437652085196431L;
+
+	public DamgardJurikProvider() 
+	{
+		super("DamgardJurik", 1.0, "DamgardJurik v 1.0");
+		put("KeyPairGenerator.DamgardJurik", DamgardJurikKeyPairGenerator.class.getName());
+		put("Cipher.DamgardJurik", DamgardJurikCipher.class.getName());
+	}
+}
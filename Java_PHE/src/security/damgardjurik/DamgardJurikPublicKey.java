@@ -0,0 +1,96 @@
+package security.damgardjurik;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.security.PublicKey;
+
+/*
+ * Damgard-Jurik public key, a generalization of Paillier with g = n + 1.
+ * Plaintexts live in Z_{n^s}, ciphertexts in Z_{n^{s+1}},
+ * so the ciphertext is only (s + 1)/s times larger than the plaintext.
+ * s = 1 is exactly Paillier.
+ */
+public final class DamgardJurikPublicKey implements Serializable, DamgardJurikKey, PublicKey
+{
+	private static final long serialVersionUID = -1803712634410964155L;
+
+	// Number of bits in n
+	public final int keysize;
+	protected final int s;
+	
+	// n = pq is a product of two large primes
+	protected final BigInteger n;
+	// n^s, the plaintext space
+	protected final BigInteger ns;
+	// n^{s+1}, the ciphertext space
+	protected final BigInteger modulus;
+	
+	public DamgardJurikPublicKey(int keysize, int s, BigInteger n)
+	{
+		this.keysize = keysize;
+		this.s = s;
+		this.n = n;
+		this.ns = n.pow(s);
+		this.modulus = this.ns.multiply(n);
+	}
+	
+	private void readObject(ObjectInputStream aInputStream) throws ClassNotFoundException,
+			IOException
+	{
+		aInputStream.defaultReadObject();
+	}
+
+	private void writeObject(ObjectOutputStream aOutputStream) throws IOException
+	{
+		aOutputStream.defaultWriteObject();
+	}
+	
+	public String toString()
+	{
+		String answer = "";
+		answer += "k1 = " + this.keysize + ", " + '\n';
+		answer += "s = " + this.s + ", " + '\n';
+		answer += "n = " + this.n + ", " + '\n';
+		answer += "modulus = " + this.modulus + '\n';
+		return answer;
+	}
+	
+	public BigInteger getN()
+	{
+		return n;
+	}
+	
+	public BigInteger getModulus() 
+	{
+		return modulus;
+	}
+	
+	// Size of the plaintext space, n^s
+	public BigInteger getPlaintextSpace()
+	{
+		return ns;
+	}
+	
+	public int getS()
+	{
+		return s;
+	}
+	
+	public String getAlgorithm() 
+	{
+		return "DamgardJurik";
+	}
+
+	public String getFormat() 
+	{
+		return "X.509";
+	}
+
+	public byte[] getEncoded() 
+	{
+		return null;
+	}
+}
@@ -0,0 +1,136 @@
+package security.ecelgamal;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import security.generic.NTL;
+
+/*
+ * Additively homomorphic ElGamal on P-256: [[m]] = (r * G, m * G + r * H).
+ * Same operations as ElGamalCipher in additive mode. A ciphertext is two 33 byte points
+ * instead of two 1024-bit residues, and encryption is two fixed-base multiplications.
+ */
+public final class ECElGamalCipher
+{
+	private ECElGamalCipher()
+	{
+
+	}
+
+	// --------------------------Encryption---------------------------------------
+
+	public static ECElGamal_Ciphertext encrypt(ECElGamalPublicKey key, BigInteger message)
+	{
+		BigInteger r = NTL.RandomBnd(ECPoint.N);
+		ECPoint gr = ECElGamalPublicKey.gMultiply(r);
+		ECPoint hrgm = ECElGamalPublicKey.gMultiply(message).add(key.hMultiply(r));
+		return new ECElGamal_Ciphertext(gr, hrgm);
+	}
+
+	public static ECElGamal_Ciphertext encrypt(ECElGamalPublicKey key, long m)
+	{
+		return encrypt(key, BigInteger.valueOf(m));
+	}
+
+	/*
+	 * @param x secret key
+	 * @param (gr, hrgm) = (r * G, m * G + r * H)
+	 * @return m, a negative m is returned as N + m
+	 */
+	public static BigInteger decrypt(ECElGamalPrivateKey key, ECElGamal_Ciphertext c)
+	{
+		// m * G = (m * G + r * H) - x * (r * G)
+		ECPoint gm = c.hrgm.subtract(c.gr.multiply(key.x));
+		BigInteger m = key.log(gm);
+		if (m != null)
+		{
+			return m;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Entry not found!");
+		}
+	}
+
+	// --------------Additively Homomorphic Operations---------------------------
+
+	// [[m1 + m2]] = (gr_1 + gr_2, hrgm_1 + hrgm_2)
+	public static ECElGamal_Ciphertext add(ECElGamal_Ciphertext ciphertext1, ECElGamal_Ciphertext ciphertext2, ECElGamalPublicKey pk)
+	{
+		return new ECElGamal_Ciphertext(ciphertext1.gr.add(ciphertext2.gr), ciphertext1.hrgm.add(ciphertext2.hrgm));
+	}
+
+	// [[m1 - m2]], negating a point is free so this is one addition per component
+	public static ECElGamal_Ciphertext subtract(ECElGamal_Ciphertext ciphertext1, ECElGamal_Ciphertext ciphertext2, ECElGamalPublicKey pk)
+	{
+		return new ECElGamal_Ciphertext(ciphertext1.gr.subtract(ciphertext2.gr), ciphertext1.hrgm.subtract(ciphertext2.hrgm));
+	}
+
+	// [[k * m]]
+	public static ECElGamal_Ciphertext multiply(ECElGamal_Ciphertext ciphertext, BigInteger scalar, ECElGamalPublicKey pk)
+	{
+		return new ECElGamal_Ciphertext(ciphertext.gr.multiply(scalar), ciphertext.hrgm.multiply(scalar));
+	}
+
+	public static ECElGamal_Ciphertext multiply(ECElGamal_Ciphertext ciphertext, long scalar, ECElGamalPublicKey pk)
+	{
+		return multiply(ciphertext, BigInteger.valueOf(scalar), pk);
+	}
+
+	/*
+	 * Sum of the first limit ciphertexts. The sum starts from the trivial [[0]] = (O, O),
+	 * not a fresh encryption of 0, so it is only as random as its inputs.
+	 */
+	public static ECElGamal_Ciphertext sum(List<ECElGamal_Ciphertext> values, ECElGamalPublicKey pk, int limit)
+	{
+		return sum(values.toArray(new ECElGamal_Ciphertext[values.size()]), pk, limit);
+	}
+
+	public static ECElGamal_Ciphertext sum(ECElGamal_Ciphertext [] values, ECElGamalPublicKey pk, int limit)
+	{
+		if (limit <= 0)
+		{
+			return ECElGamalCipher.encrypt(pk, BigInteger.ZERO);
+		}
+		limit = Math.min(limit, values.length);
+		// Accumulate in Jacobian coordinates, one inversion per component at the end
+		BigInteger [] gr = ECPoint.toJacobian(ECPoint.INFINITY);
+		BigInteger [] hrgm = ECPoint.toJacobian(ECPoint.INFINITY);
+		for (int i = 0; i < limit; i++)
+		{
+			gr = ECPoint.addMixed(gr, values[i].gr);
+			hrgm = ECPoint.addMixed(hrgm, values[i].hrgm);
+		}
+		return new ECElGamal_Ciphertext(ECPoint.toAffine(gr), ECPoint.toAffine(hrgm));
+	}
+
+	public static ECElGamal_Ciphertext sum_product(ECElGamalPublicKey pk, List<ECElGamal_Ciphertext> cipher, List<Long> plain)
+	{
+		if(cipher.size() != plain.size())
+		{
+			throw new IllegalArgumentException("Arrays are NOT the same size!");
+		}
+
+		ECElGamal_Ciphertext [] product_vector = new ECElGamal_Ciphertext[cipher.size()];
+		for (int i = 0; i < product_vector.length; i++)
+		{
+			product_vector[i] = ECElGamalCipher.multiply(cipher.get(i), plain.get(i), pk);
+		}
+		return ECElGamalCipher.sum(product_vector, pk, product_vector.length);
+	}
+
+	public static ECElGamal_Ciphertext sum_product(ECElGamalPublicKey pk, List<ECElGamal_Ciphertext> cipher, Long [] plain)
+	{
+		if(cipher.size() != plain.length)
+		{
+			throw new IllegalArgumentException("Arrays are NOT the same size!");
+		}
+
+		ECElGamal_Ciphertext [] product_vector = new ECElGamal_Ciphertext[cipher.size()];
+		for (int i = 0; i < product_vector.length; i++)
+		{
+			product_vector[i] = ECElGamalCipher.multiply(cipher.get(i), plain[i], pk);
+		}
+		return ECElGamalCipher.sum(product_vector, pk, product_vector.length);
+	}
+}
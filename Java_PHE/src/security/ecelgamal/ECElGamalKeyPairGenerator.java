@@ -0,0 +1,61 @@
+package security.ecelgamal;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGeneratorSpi;
+import java.security.SecureRandom;
+
+import security.generic.CipherConstants;
+
+public class ECElGamalKeyPairGenerator extends KeyPairGeneratorSpi implements CipherConstants
+{
+	// Only P-256 is supported, 128-bit security like 3072-bit ElGamal
+	private int keysize = 256;
+	private SecureRandom random = null;
+	private int table_size = ECElGamalPrivateKey.DEFAULT_TABLE_SIZE;
+
+	public void initialize(int keysize, SecureRandom random)
+	{
+		if (keysize != 256)
+		{
+			throw new IllegalArgumentException("EC ElGamal only supports P-256!");
+		}
+		this.keysize = keysize;
+		this.random = random;
+	}
+
+	// Number of baby steps in the decryption table of generated keys
+	public void setTableSize(int table_size)
+	{
+		if (table_size < 1 || table_size > Integer.MAX_VALUE / 2)
+		{
+			throw new IllegalArgumentException("Decryption table size must be in [1, 2^30)!");
+		}
+		this.table_size = table_size;
+	}
+
+	public int getTableSize()
+	{
+		return this.table_size;
+	}
+
+	public KeyPair generateKeyPair()
+	{
+		if(this.random == null)
+		{
+			random = new SecureRandom();
+		}
+
+		// x random in [1, N - 1], h = x * G
+		BigInteger x;
+		do
+		{
+			x = new BigInteger(keysize, random);
+		}
+		while (x.signum() == 0 || x.compareTo(ECPoint.N) >= 0);
+
+		ECElGamalPublicKey pk = new ECElGamalPublicKey(ECElGamalPublicKey.gMultiply(x));
+		ECElGamalPrivateKey sk = new ECElGamalPrivateKey(x, pk, table_size, ECElGamalPrivateKey.DEFAULT_MAX_GIANT_STEPS);
+		return new KeyPair(pk, sk);
+	}
+}
@@ -0,0 +1,277 @@
+package security.ecelgamal;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import security.generic.DiscreteLogTable;
+import security.generic.Parallel;
+
+public final class ECElGamalPrivateKey implements ECElGamal_Key, Serializable, PrivateKey, Runnable
+{
+	private static final long serialVersionUID = -1887432104735069826L;
+
+	// Private Key parameter, h = x * G
+	protected final BigInteger x;
+
+	// Taken from the public key
+	protected final ECPoint h;
+
+	// Baby-step/giant-step decryption like ElGamalPrivateKey: LUT holds j * G for j < baby_steps,
+	// giant = baby_steps * G. Both are built on the first decryption and never serialized.
+	public final static int DEFAULT_TABLE_SIZE = 1 << 16;
+	public final static long DEFAULT_MAX_GIANT_STEPS = 1 << 16;
+	// Giant steps per batched inversion
+	private final static int GIANT_CHUNK = 64;
+	protected final int baby_steps;
+	protected final long max_giant_steps;
+	private transient volatile DiscreteLogTable LUT = null;
+	private transient volatile ECPoint giant = null;
+
+	public ECElGamalPrivateKey(BigInteger x, ECElGamalPublicKey pubKey)
+	{
+		this(x, pubKey, DEFAULT_TABLE_SIZE, DEFAULT_MAX_GIANT_STEPS);
+	}
+
+	/**
+	 * @param table_size - number of baby steps j * G kept in memory
+	 * @param max_giant_steps - giant steps to try in each direction before giving up
+	 */
+	public ECElGamalPrivateKey(BigInteger x, ECElGamalPublicKey pubKey, int table_size, long max_giant_steps)
+	{
+		if (x.signum() <= 0 || x.compareTo(ECPoint.N) >= 0)
+		{
+			throw new IllegalArgumentException("Private key must be in [1, N)!");
+		}
+		if (table_size < 1 || table_size > Integer.MAX_VALUE / 2)
+		{
+			throw new IllegalArgumentException("Decryption table size must be in [1, 2^30)!");
+		}
+		if (max_giant_steps < 1)
+		{
+			throw new IllegalArgumentException("Need at least one giant step!");
+		}
+		this.x = x;
+		this.h = pubKey.h;
+		this.baby_steps = table_size;
+		this.max_giant_steps = max_giant_steps;
+	}
+
+	public String getAlgorithm()
+	{
+		return "ECElGamal";
+	}
+
+	public String getFormat()
+	{
+		return "ECElGamal";
+	}
+
+	public byte[] getEncoded()
+	{
+		return null;
+	}
+
+    private void readObject(ObjectInputStream aInputStream)
+            throws ClassNotFoundException,IOException
+    {
+        aInputStream.defaultReadObject();
+    }
+
+    private void writeObject(ObjectOutputStream aOutputStream) throws IOException
+    {
+        aOutputStream.defaultWriteObject();
+    }
+
+    // Build the baby steps once in parallel strides, readers only see them after they are complete
+    private synchronized DiscreteLogTable decrypt_table()
+	{
+		if (this.LUT != null)
+		{
+			return this.LUT;
+		}
+		final BigInteger [] keys = new BigInteger[this.baby_steps];
+		final int strides = Math.min(keys.length, Parallel.defaultPool().getParallelism() * 4);
+		final int stride = (keys.length + strides - 1) / strides;
+		Parallel.forEach(Parallel.defaultPool(), strides, new IntConsumer()
+		{
+			public void accept(int s)
+			{
+				int start = s * stride;
+				int end = Math.min(keys.length, start + stride);
+				if (start >= end)
+				{
+					return;
+				}
+				ECPoint [] points = ECPoint.multiples(ECPoint.G, start, end - start);
+				for (int j = start; j < end; j++)
+				{
+					keys[j] = points[j - start].key();
+				}
+			}
+		});
+		DiscreteLogTable table = new DiscreteLogTable(keys);
+		this.giant = ECElGamalPublicKey.gMultiply(BigInteger.valueOf(this.baby_steps));
+		this.LUT = table;
+		return table;
+	}
+
+    // Build the decryption table now instead of on the first decryption
+    public void precompute()
+    {
+    	decrypt_table();
+    }
+
+	public void run()
+	{
+		decrypt_table();
+	}
+
+	/**
+	 * m with m * G = M, or null if |m| is out of range.
+	 * A negative m is returned as N + m, like ElGamalPrivateKey returns p - 1 + m.
+	 * Same search as ElGamalPrivateKey.log, with point additions instead of multiplications.
+	 * The giant steps stay in Jacobian coordinates and are converted to affine points
+	 * GIANT_CHUNK steps at a time with one batched inversion.
+	 * Every table hit is checked against M before it is accepted.
+	 */
+	protected BigInteger log(final ECPoint M)
+	{
+		DiscreteLogTable table = this.LUT;
+		if (table == null)
+		{
+			table = decrypt_table();
+		}
+		final DiscreteLogTable LUT = table;
+		final ECPoint giant = this.giant;
+		final ECPoint giant_inverse = giant.negate();
+		final long B = this.baby_steps;
+
+		long j = LUT.get(M.key());
+		if (j != -1 && is_log(j, M))
+		{
+			return exponent(j);
+		}
+		j = LUT.get(M.add(giant).key());
+		if (j != -1 && is_log(j - B, M))
+		{
+			return exponent(j - B);
+		}
+		if (this.max_giant_steps == 1)
+		{
+			return null;
+		}
+
+		final AtomicLong found = new AtomicLong(Long.MIN_VALUE);
+		final long giant_steps = this.max_giant_steps - 1;
+		final int strides = (int) Math.min(giant_steps, Parallel.defaultPool().getParallelism() * 4);
+		final long stride = (giant_steps + strides - 1) / strides;
+		Parallel.forEach(Parallel.defaultPool(), strides, new IntConsumer()
+		{
+			public void accept(int s)
+			{
+				long start = 1 + s * stride;
+				long end = Math.min(max_giant_steps, start + stride);
+				if (start >= end)
+				{
+					return;
+				}
+				BigInteger [] positive = ECPoint.toJacobian(M.add(giant_inverse.multiply(start)));
+				BigInteger [] negative = ECPoint.toJacobian(M.add(giant.multiply(start + 1)));
+				for (long i = start; i < end && found.get() == Long.MIN_VALUE; i += GIANT_CHUNK)
+				{
+					// Giant steps i, ..., i + count - 1 in both directions, converted back with one inversion
+					int count = (int) Math.min(GIANT_CHUNK, end - i);
+					BigInteger [][] steps = new BigInteger[2 * count][];
+					for (int c = 0; c < count; c++)
+					{
+						steps[2 * c] = positive;
+						steps[2 * c + 1] = negative;
+						positive = ECPoint.addMixed(positive, giant_inverse);
+						negative = ECPoint.addMixed(negative, giant);
+					}
+					ECPoint [] affine = ECPoint.toAffine(steps);
+					for (int c = 0; c < count; c++)
+					{
+						long step = i + c;
+						// M - step * B * G = j * G
+						long j = LUT.get(affine[2 * c].key());
+						if (j != -1 && is_log(step * B + j, M))
+						{
+							found.compareAndSet(Long.MIN_VALUE, step * B + j);
+							return;
+						}
+						// M + (step + 1) * B * G = j * G
+						j = LUT.get(affine[2 * c + 1].key());
+						if (j != -1 && is_log(j - (step + 1) * B, M))
+						{
+							found.compareAndSet(Long.MIN_VALUE, j - (step + 1) * B);
+							return;
+						}
+					}
+				}
+			}
+		});
+		long m = found.get();
+		if (m == Long.MIN_VALUE)
+		{
+			return null;
+		}
+		return exponent(m);
+	}
+
+	// m as a scalar, a negative m is N + m
+	private static BigInteger exponent(long m)
+	{
+		if (m < 0)
+		{
+			return ECPoint.N.add(BigInteger.valueOf(m));
+		}
+		return BigInteger.valueOf(m);
+	}
+
+	// True if m * G = M, rules out a table hit on a fingerprint alone
+	private static boolean is_log(long m, ECPoint M)
+	{
+		return ECElGamalPublicKey.gMultiply(BigInteger.valueOf(m)).equals(M);
+	}
+
+	public int getTableSize()
+	{
+		return this.baby_steps;
+	}
+
+	public long getMaxGiantSteps()
+	{
+		return this.max_giant_steps;
+	}
+
+	public ECPoint getH()
+	{
+		return this.h;
+	}
+
+	public BigInteger getN()
+	{
+		return ECPoint.N;
+	}
+
+	public ECElGamalPublicKey getPublicKey()
+	{
+		return new ECElGamalPublicKey(this.h);
+	}
+
+	public String toString()
+	{
+    	String answer = "";
+    	answer += "curve=P-256" + '\n';
+    	answer += "h=" + this.h + '\n';
+    	//answer += "x=" + this.x + '\n';
+    	return answer;
+	}
+}
@@ -0,0 +1,15 @@
+package security.ecelgamal;
+
+import java.security.Provider;
+
+public class ECElGamalProvider extends Provider
+{
+	private static final long serialVersionUID = -2913375396208187542L;
+
+	public ECElGamalProvider()
+	{
+		 super("ECElGamal", 1.0, "EC ElGamal v1.0");
+		 put("KeyPairGenerator.ECElGamal", ECElGamalKeyPairGenerator.class.getName());
+		 // No Cipher.ECElGamal, use the static methods of ECElGamalCipher
+	}
+}
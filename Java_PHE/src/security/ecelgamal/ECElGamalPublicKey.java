@@ -0,0 +1,140 @@
+package security.ecelgamal;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.security.PublicKey;
+
+public final class ECElGamalPublicKey implements Serializable, PublicKey, ECElGamal_Key
+{
+	private static final long serialVersionUID = 4467209323957416474L;
+	// The generator is always the P-256 base point G
+	protected final ECPoint h;
+
+	// Fixed-base table for G, shared by every key
+	private static volatile ECFixedBaseTable gLUT = null;
+	// Fixed-base table for r * H, null until built
+	private transient volatile ECFixedBaseTable hLUT = null;
+
+	public ECElGamalPublicKey(ECPoint h)
+	{
+		if (h.isInfinity())
+		{
+			throw new IllegalArgumentException("Public key can not be the point at infinity!");
+		}
+		this.h = h;
+	}
+
+	public String getAlgorithm()
+	{
+		return "ECElGamal";
+	}
+
+	public String getFormat()
+	{
+		return "ECElGamal";
+	}
+
+	// Compressed encoding of h, 33 bytes
+	public byte[] getEncoded()
+	{
+		return this.h.getEncoded();
+	}
+
+	public static ECElGamalPublicKey decode(byte [] encoded)
+	{
+		return new ECElGamalPublicKey(ECPoint.decode(encoded));
+	}
+
+	public ECPoint getH()
+	{
+		return this.h;
+	}
+
+	public BigInteger getN()
+	{
+		return ECPoint.N;
+	}
+
+	/*
+	 * Build the fixed-base tables now instead of on the first encryption.
+	 * The table for G is shared by every key, so it is replaced for all of them.
+	 */
+	public void precompute(int window)
+	{
+		synchronized (this)
+		{
+			this.hLUT = new ECFixedBaseTable(this.h, window);
+		}
+		synchronized (ECElGamalPublicKey.class)
+		{
+			gLUT = new ECFixedBaseTable(ECPoint.G, window);
+		}
+	}
+
+	// k * G
+	protected static ECPoint gMultiply(BigInteger k)
+	{
+		ECFixedBaseTable table = gLUT;
+		if (table == null)
+		{
+			table = generategLUT();
+		}
+		return table.multiply(k);
+	}
+
+	// Only the first caller builds the table for G, parallel encryptions wait for it
+	private static synchronized ECFixedBaseTable generategLUT()
+	{
+		if (gLUT != null)
+		{
+			return gLUT;
+		}
+		ECFixedBaseTable table = new ECFixedBaseTable(ECPoint.G);
+		gLUT = table;
+		return table;
+	}
+
+	// k * H
+	protected ECPoint hMultiply(BigInteger k)
+	{
+		ECFixedBaseTable table = this.hLUT;
+		if (table == null)
+		{
+			table = generatehLUT();
+		}
+		return table.multiply(k);
+	}
+
+	private synchronized ECFixedBaseTable generatehLUT()
+	{
+		if (this.hLUT != null)
+		{
+			return this.hLUT;
+		}
+		ECFixedBaseTable table = new ECFixedBaseTable(this.h);
+		this.hLUT = table;
+		return table;
+	}
+
+    private void readObject(ObjectInputStream aInputStream)
+            throws ClassNotFoundException,IOException
+    {
+        aInputStream.defaultReadObject();
+    }
+
+    private void writeObject(ObjectOutputStream aOutputStream) throws IOException
+    {
+        aOutputStream.defaultWriteObject();
+    }
+
+    public String toString()
+    {
+    	String answer = "";
+    	answer += "curve=P-256" + '\n';
+    	answer += "h=" + this.h + '\n';
+    	return answer;
+    }
+}
@@ -0,0 +1,27 @@
+package security.ecelgamal;
+
+import java.io.Serializable;
+
+// (r * G, m * G + r * H), each point is sent as 33 bytes
+public class ECElGamal_Ciphertext implements Serializable
+{
+	private static final long serialVersionUID = 2546212487374196393L;
+	public final ECPoint gr; // r * G
+	public final ECPoint hrgm; // m * G + r * H
+
+	public ECElGamal_Ciphertext(ECPoint gr, ECPoint hrgm)
+	{
+		this.gr = gr;
+		this.hrgm = hrgm;
+	}
+
+	public ECPoint getA()
+	{
+		return this.gr;
+	}
+
+	public ECPoint getB()
+	{
+		return this.hrgm;
+	}
+}
@@ -0,0 +1,11 @@
+package security.ecelgamal;
+
+import java.math.BigInteger;
+
+public interface ECElGamal_Key
+{
+	public ECPoint getH();
+	
+	// Order of the base point G, plaintexts are in Z_N
+	public BigInteger getN();
+}
@@ -0,0 +1,85 @@
+package security.ecelgamal;
+
+import java.math.BigInteger;
+
+/*
+ * Fixed-base comb for k * base on P-256, the elliptic curve counterpart of FixedBaseTable.
+ *
+ * table[i][j] = (j + 1) * 2^{w*i} * base, so k * base is one mixed addition
+ * per w-bit window of k and no doublings at all.
+ * Memory is ceil(256 / w) * (2^w - 1) affine points.
+ *
+ * The table is immutable once built, so it can be shared between threads.
+ */
+public final class ECFixedBaseTable
+{
+	public final static int DEFAULT_WINDOW = 4;
+
+	private final ECPoint base;
+	private final int window;
+	private final ECPoint [][] table;
+
+	public ECFixedBaseTable(ECPoint base)
+	{
+		this(base, DEFAULT_WINDOW);
+	}
+
+	public ECFixedBaseTable(ECPoint base, int window)
+	{
+		if (window < 1 || window > 16)
+		{
+			throw new IllegalArgumentException("Window must be in [1, 16] bits!");
+		}
+		this.base = base;
+		this.window = window;
+
+		int windows = (ECPoint.N.bitLength() + window - 1) / window;
+		int digits = (1 << window) - 1;
+		this.table = new ECPoint[windows][];
+
+		// b_i = 2^{w*i} * base, row i holds b_i, 2 * b_i, ..., (2^w - 1) * b_i and 2^w * b_i = b_{i+1}
+		ECPoint b_i = base;
+		for (int i = 0; i < windows; i++)
+		{
+			ECPoint [] row = ECPoint.multiples(b_i, 1, digits + 1);
+			table[i] = new ECPoint[digits];
+			System.arraycopy(row, 0, table[i], 0, digits);
+			b_i = row[digits];
+		}
+	}
+
+	// k * base, k is reduced mod N first
+	public ECPoint multiply(BigInteger k)
+	{
+		k = k.mod(ECPoint.N);
+		BigInteger [] R = ECPoint.toJacobian(ECPoint.INFINITY);
+		for (int i = 0; i < table.length; i++)
+		{
+			int digit = 0;
+			for (int j = window - 1; j >= 0; j--)
+			{
+				digit = (digit << 1) | (k.testBit(window * i + j) ? 1 : 0);
+			}
+			if (digit != 0)
+			{
+				R = ECPoint.addMixed(R, table[i][digit - 1]);
+			}
+		}
+		return ECPoint.toAffine(R);
+	}
+
+	public ECPoint multiply(long k)
+	{
+		return multiply(BigInteger.valueOf(k));
+	}
+
+	public ECPoint getBase()
+	{
+		return base;
+	}
+
+	public int getWindow()
+	{
+		return window;
+	}
+}
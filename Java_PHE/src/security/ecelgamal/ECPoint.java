@@ -0,0 +1,380 @@
+package security.ecelgamal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/*
+ * Immutable point on NIST P-256 (y^2 = x^3 - 3x + b over F_p) in affine coordinates,
+ * the point at infinity has x = y = null.
+ *
+ * Scalar multiplication works in Jacobian coordinates (X, Y, Z) ~ (X/Z^2, Y/Z^3),
+ * so a whole multiplication pays for one field inversion at the end instead of one per addition.
+ * Serialized as its 33 byte compressed encoding.
+ */
+public final class ECPoint implements Serializable
+{
+	private static final long serialVersionUID = -3317532345867155419L;
+
+	// NIST P-256 domain parameters, see FIPS 186-4 D.1.2.3
+	public final static BigInteger P = new BigInteger("ffffffff00000001000000000000000000000000ffffffffffffffffffffffff", 16);
+	public final static BigInteger A = P.subtract(BigInteger.valueOf(3));
+	public final static BigInteger B = new BigInteger("5ac635d8aa3a93e7b3ebbd55769886bc651d06b0cc53b0f63bce3c3e27d2604b", 16);
+	// Order of G, prime
+	public final static BigInteger N = new BigInteger("ffffffff00000000ffffffffffffffffbce6faada7179e84f3b9cac2fc632551", 16);
+	public final static ECPoint INFINITY = new ECPoint(null, null);
+	public final static ECPoint G = new ECPoint(
+			new BigInteger("6b17d1f2e12c4247f8bce6e563a440f277037d812deb33a0f4a13945d898c296", 16),
+			new BigInteger("4fe342e2fe1a7f9b8ee7eb4a7c0f9e162bce33576b315ececbb6406837bf51f5", 16));
+
+	// Size of the compressed encoding: 1 byte for the parity of y, 32 bytes for x
+	public final static int ENCODED_SIZE = 33;
+	private final static BigInteger SQRT_EXPONENT = P.add(BigInteger.ONE).shiftRight(2);
+	private final static BigInteger THREE = BigInteger.valueOf(3);
+
+	public final BigInteger x;
+	public final BigInteger y;
+
+	private ECPoint(BigInteger x, BigInteger y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	public static ECPoint valueOf(BigInteger x, BigInteger y)
+	{
+		if (x.signum() == -1 || x.compareTo(P) >= 0 || y.signum() == -1 || y.compareTo(P) >= 0)
+		{
+			throw new IllegalArgumentException("Coordinates are not in Fp!");
+		}
+		if (!y.multiply(y).subtract(rhs(x)).mod(P).equals(BigInteger.ZERO))
+		{
+			throw new IllegalArgumentException("Point is not on P-256!");
+		}
+		return new ECPoint(x, y);
+	}
+
+	// x^3 - 3x + b (mod p)
+	private static BigInteger rhs(BigInteger x)
+	{
+		return x.multiply(x).add(A).multiply(x).add(B).mod(P);
+	}
+
+	public boolean isInfinity()
+	{
+		return x == null;
+	}
+
+	//-----------------------Group operations----------------------------------------------
+
+	public ECPoint negate()
+	{
+		if (isInfinity())
+		{
+			return this;
+		}
+		return new ECPoint(x, y.signum() == 0 ? y : P.subtract(y));
+	}
+
+	public ECPoint add(ECPoint other)
+	{
+		return toAffine(addMixed(toJacobian(this), other));
+	}
+
+	public ECPoint subtract(ECPoint other)
+	{
+		return add(other.negate());
+	}
+
+	public ECPoint twice()
+	{
+		return toAffine(twice(toJacobian(this)));
+	}
+
+	// k * this, k is reduced mod N first so negative scalars work too
+	public ECPoint multiply(BigInteger k)
+	{
+		k = k.mod(N);
+		if (k.signum() == 0 || isInfinity())
+		{
+			return INFINITY;
+		}
+		// Fixed window of 4 bits: this, 2 * this, ..., 15 * this
+		ECPoint [] window = toAffine(walk(toJacobian(this), this, 15));
+		BigInteger [] R = null;
+		for (int i = (k.bitLength() + 3) / 4 - 1; i >= 0; i--)
+		{
+			if (R != null)
+			{
+				for (int j = 0; j < 4; j++)
+				{
+					R = twice(R);
+				}
+			}
+			int digit = 0;
+			for (int j = 3; j >= 0; j--)
+			{
+				digit = (digit << 1) | (k.testBit(4 * i + j) ? 1 : 0);
+			}
+			if (digit != 0)
+			{
+				R = (R == null) ? toJacobian(window[digit - 1]) : addMixed(R, window[digit - 1]);
+			}
+		}
+		return toAffine(R);
+	}
+
+	public ECPoint multiply(long k)
+	{
+		return multiply(BigInteger.valueOf(k));
+	}
+
+	/**
+	 * start * base, (start + 1) * base, ..., (start + count - 1) * base.
+	 * One scalar multiplication, then one addition per point,
+	 * and all points share a single batched inversion back to affine coordinates.
+	 */
+	public static ECPoint [] multiples(ECPoint base, long start, int count)
+	{
+		return toAffine(walk(toJacobian(base.multiply(BigInteger.valueOf(start))), base, count));
+	}
+
+	// R, R + base, ..., R + (count - 1) * base
+	private static BigInteger [][] walk(BigInteger [] R, ECPoint base, int count)
+	{
+		BigInteger [][] jacobian = new BigInteger[count][];
+		for (int i = 0; i < count; i++)
+		{
+			jacobian[i] = R;
+			R = addMixed(R, base);
+		}
+		return jacobian;
+	}
+
+	//-----------------------Jacobian coordinates----------------------------------------------
+
+	// (X, Y, Z), Z = 0 is the point at infinity
+	static BigInteger [] toJacobian(ECPoint a)
+	{
+		if (a.isInfinity())
+		{
+			return new BigInteger[] {BigInteger.ONE, BigInteger.ONE, BigInteger.ZERO};
+		}
+		return new BigInteger[] {a.x, a.y, BigInteger.ONE};
+	}
+
+	static ECPoint toAffine(BigInteger [] R)
+	{
+		if (R[2].signum() == 0)
+		{
+			return INFINITY;
+		}
+		BigInteger z_inv = R[2].modInverse(P);
+		return affine(R, z_inv);
+	}
+
+	private static ECPoint affine(BigInteger [] R, BigInteger z_inv)
+	{
+		BigInteger z_inv2 = z_inv.multiply(z_inv).mod(P);
+		BigInteger x = R[0].multiply(z_inv2).mod(P);
+		BigInteger y = R[1].multiply(z_inv2).mod(P).multiply(z_inv).mod(P);
+		return new ECPoint(x, y);
+	}
+
+	/*
+	 * Montgomery's batch inversion over the Z coordinates:
+	 * one modInverse and 3(l - 1) multiplications for all l points.
+	 */
+	static ECPoint [] toAffine(BigInteger [][] R)
+	{
+		ECPoint [] result = new ECPoint[R.length];
+		// prefix[i] = product of the non-zero Z_0 ... Z_i
+		BigInteger [] prefix = new BigInteger[R.length];
+		BigInteger product = BigInteger.ONE;
+		for (int i = 0; i < R.length; i++)
+		{
+			if (R[i][2].signum() != 0)
+			{
+				product = product.multiply(R[i][2]).mod(P);
+			}
+			prefix[i] = product;
+		}
+		BigInteger inverse = product.modInverse(P);
+		for (int i = R.length - 1; i >= 0; i--)
+		{
+			if (R[i][2].signum() == 0)
+			{
+				result[i] = INFINITY;
+				continue;
+			}
+			BigInteger before = (i == 0) ? BigInteger.ONE : prefix[i - 1];
+			result[i] = affine(R[i], inverse.multiply(before).mod(P));
+			inverse = inverse.multiply(R[i][2]).mod(P);
+		}
+		return result;
+	}
+
+	// 2R, dbl-2001-b for a = -3
+	static BigInteger [] twice(BigInteger [] R)
+	{
+		if (R[2].signum() == 0 || R[1].signum() == 0)
+		{
+			return new BigInteger[] {BigInteger.ONE, BigInteger.ONE, BigInteger.ZERO};
+		}
+		BigInteger delta = R[2].multiply(R[2]).mod(P);
+		BigInteger gamma = R[1].multiply(R[1]).mod(P);
+		BigInteger beta = R[0].multiply(gamma).mod(P);
+		BigInteger alpha = R[0].subtract(delta).multiply(R[0].add(delta)).multiply(THREE).mod(P);
+		BigInteger X3 = alpha.multiply(alpha).subtract(beta.shiftLeft(3)).mod(P);
+		BigInteger Z3 = R[1].add(R[2]).pow(2).subtract(gamma).subtract(delta).mod(P);
+		BigInteger Y3 = alpha.multiply(beta.shiftLeft(2).subtract(X3)).subtract(gamma.multiply(gamma).shiftLeft(3)).mod(P);
+		return new BigInteger[] {X3, Y3, Z3};
+	}
+
+	// R + a for an affine point a, madd-2007-bl without the Z2 terms
+	static BigInteger [] addMixed(BigInteger [] R, ECPoint a)
+	{
+		if (a.isInfinity())
+		{
+			return R;
+		}
+		if (R[2].signum() == 0)
+		{
+			return toJacobian(a);
+		}
+		BigInteger Z1Z1 = R[2].multiply(R[2]).mod(P);
+		BigInteger U2 = a.x.multiply(Z1Z1).mod(P);
+		BigInteger S2 = a.y.multiply(R[2]).mod(P).multiply(Z1Z1).mod(P);
+		BigInteger H = U2.subtract(R[0]).mod(P);
+		BigInteger r = S2.subtract(R[1]).mod(P);
+		if (H.signum() == 0)
+		{
+			if (r.signum() == 0)
+			{
+				return twice(R);
+			}
+			return new BigInteger[] {BigInteger.ONE, BigInteger.ONE, BigInteger.ZERO};
+		}
+		BigInteger HH = H.multiply(H).mod(P);
+		BigInteger HHH = H.multiply(HH).mod(P);
+		BigInteger V = R[0].multiply(HH).mod(P);
+		BigInteger X3 = r.multiply(r).subtract(HHH).subtract(V.shiftLeft(1)).mod(P);
+		BigInteger Y3 = r.multiply(V.subtract(X3)).subtract(R[1].multiply(HHH)).mod(P);
+		BigInteger Z3 = R[2].multiply(H).mod(P);
+		return new BigInteger[] {X3, Y3, Z3};
+	}
+
+	//-----------------------Encoding----------------------------------------------
+
+	// SEC 1 compressed form: 0x02 or 0x03 (parity of y) followed by x, a single 0x00 for infinity
+	public byte [] getEncoded()
+	{
+		if (isInfinity())
+		{
+			return new byte[] {0};
+		}
+		byte [] encoded = new byte[ENCODED_SIZE];
+		encoded[0] = (byte) (y.testBit(0) ? 3 : 2);
+		byte [] x_bytes = x.toByteArray();
+		int length = Math.min(x_bytes.length, ENCODED_SIZE - 1);
+		System.arraycopy(x_bytes, x_bytes.length - length, encoded, ENCODED_SIZE - length, length);
+		return encoded;
+	}
+
+	public static ECPoint decode(byte [] encoded)
+	{
+		if (encoded.length == 1 && encoded[0] == 0)
+		{
+			return INFINITY;
+		}
+		if (encoded.length != ENCODED_SIZE || (encoded[0] != 2 && encoded[0] != 3))
+		{
+			throw new IllegalArgumentException("Invalid compressed P-256 point!");
+		}
+		BigInteger x = new BigInteger(1, Arrays.copyOfRange(encoded, 1, ENCODED_SIZE));
+		if (x.compareTo(P) >= 0)
+		{
+			throw new IllegalArgumentException("Invalid compressed P-256 point!");
+		}
+		// p = 3 (mod 4), so a square root of c is c^{(p + 1)/4}
+		BigInteger y = rhs(x).modPow(SQRT_EXPONENT, P);
+		if (!y.multiply(y).mod(P).equals(rhs(x)))
+		{
+			throw new IllegalArgumentException("Point is not on P-256!");
+		}
+		if (y.testBit(0) != (encoded[0] == 3))
+		{
+			y = P.subtract(y);
+		}
+		return new ECPoint(x, y);
+	}
+
+	/*
+	 * Distinct for distinct points: x, with the parity of y above the 256 bits of x.
+	 * P and -P share x, so the parity also flips bit 63, otherwise they would share
+	 * a fingerprint in DiscreteLogTable, which only looks at the low 64 bits.
+	 */
+	BigInteger key()
+	{
+		if (isInfinity())
+		{
+			return BigInteger.ONE.shiftLeft(257);
+		}
+		return y.testBit(0) ? x.setBit(256).flipBit(63) : x;
+	}
+
+	public boolean equals(Object o)
+	{
+		if (this == o)
+		{
+			return true;
+		}
+		if (!(o instanceof ECPoint))
+		{
+			return false;
+		}
+		ECPoint other = (ECPoint) o;
+		if (isInfinity() || other.isInfinity())
+		{
+			return isInfinity() && other.isInfinity();
+		}
+		return x.equals(other.x) && y.equals(other.y);
+	}
+
+	public int hashCode()
+	{
+		return isInfinity() ? 0 : x.hashCode() * 31 + y.hashCode();
+	}
+
+	public String toString()
+	{
+		if (isInfinity())
+		{
+			return "INFINITY";
+		}
+		return "(" + x.toString(16) + ", " + y.toString(16) + ")";
+	}
+
+	private Object writeReplace() throws ObjectStreamException
+	{
+		return new Encoded(getEncoded());
+	}
+
+	// Serialized form of a point
+	private static final class Encoded implements Serializable
+	{
+		private static final long serialVersionUID = 5082958421932749816L;
+		private final byte [] encoded;
+
+		Encoded(byte [] encoded)
+		{
+			this.encoded = encoded;
+		}
+
+		private Object readResolve() throws ObjectStreamException
+		{
+			return decode(encoded);
+		}
+	}
+}
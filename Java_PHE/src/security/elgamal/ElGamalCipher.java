@@ -19,7 +19,6 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.ShortBufferException;
 
-import security.generic.CipherConstants;
 import security.generic.NTL;
 
 // Reference
@@ -384,8 +383,9 @@ public class ElGamalCipher extends CipherSpi
 	{
 		BigInteger pPrime = Key.p.subtract(BigInteger.ONE).divide(ElGamalKeyPairGenerator.TWO);
 		BigInteger r = NTL.RandomBnd(pPrime);
-		BigInteger gr = Key.g.modPow(r, Key.p);
-		BigInteger hrgm = message.multiply(Key.h.modPow(r, Key.p)).mod(Key.p);
+		BigInteger [] grhr = Key.grhr(r);
+		BigInteger gr = grhr[0];
+		BigInteger hrgm = message.multiply(grhr[1]).mod(Key.p);
 		// encrypt couple (g^r (mod p), m * h^r (mod p))
 		return new ElGamal_Ciphertext(gr, hrgm);
 	}
@@ -401,9 +401,9 @@ public class ElGamalCipher extends CipherSpi
 		BigInteger pPrime = key.p.subtract(BigInteger.ONE).divide(ElGamalKeyPairGenerator.TWO);
 		BigInteger r = NTL.RandomBnd(pPrime);
 		// encrypt couple (g^r (mod p), h^r * g^m (mod p))
-		BigInteger hr = key.h.modPow(r, key.p);
-		BigInteger gm = key.g.modPow(message, key.p);
-		return new ElGamal_Ciphertext(key.g.modPow(r, key.p), hr.multiply(gm).mod(key.p));
+		BigInteger [] grhr = key.grhr(r);
+		BigInteger gm = key.gPow(message);
+		return new ElGamal_Ciphertext(grhr[0], grhr[1].multiply(gm).mod(key.p));
 	}
 	
 	/*
@@ -415,8 +415,9 @@ public class ElGamalCipher extends CipherSpi
 	 */
 	private static BigInteger Decrypt(ElGamalPrivateKey key, ElGamal_Ciphertext c)
 	{
-		BigInteger hr = c.gr.modPow(key.x, key.p);
-		return c.hrgm.multiply(hr.modInverse(key.p)).mod(key.p);
+		// (h^r)^{-1} = (g^r)^{p - 1 - x} (mod p), no modInverse needed
+		BigInteger hr_inverse = c.gr.modPow(key.p.subtract(BigInteger.ONE).subtract(key.x), key.p);
+		return c.hrgm.multiply(hr_inverse).mod(key.p);
 	}
 
 	/*
@@ -426,19 +427,14 @@ public class ElGamalCipher extends CipherSpi
 	 */
 	private static BigInteger Decrypt_Homomorph(ElGamalPrivateKey key, ElGamal_Ciphertext c) 
 	{
-		// h^r (mod p) = g^{r * x} (mod p)
-		BigInteger hr = c.gr.modPow(key.x, key.p);
+		// (h^r)^{-1} (mod p) = g^{-r * x} = (g^r)^{p - 1 - x} (mod p)
+		BigInteger hr_inverse = c.gr.modPow(key.p.subtract(BigInteger.ONE).subtract(key.x), key.p);
 		// g^m = (h^r * g^m) * (h^r)-1 (mod p) = g^m (mod p)
-		BigInteger gm = c.hrgm.multiply(hr.modInverse(key.p)).mod(key.p);
-		BigInteger m = key.LUT.get(gm);
+		BigInteger gm = c.hrgm.multiply(hr_inverse).mod(key.p);
+		BigInteger m = key.log(gm);
 		
 		if (m != null)
 		{
-			// If I get this, there is a chance I might have a negative number to make?
-			if (m.compareTo(CipherConstants.FIELD_SIZE) == 1)
-			{
-				m = m.mod(key.p.subtract(BigInteger.ONE));
-			}
 			return m;
 		}
 		else
@@ -0,0 +1,221 @@
+package security.elgamal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+import security.generic.Parallel;
+
+/*
+ * Immutable batch of ElGamal ciphertexts under one public key, stored as two columns
+ * gr[i] = g^r_i and hrgm[i] = h^r_i * g^m_i (or m_i * h^r_i if ElGamalCipher is multiplicative).
+ *
+ * Every element is checked to be in Z_p* once, in valueOf(), and the element-wise
+ * operations after that work on the columns directly, with no ElGamal_Ciphertext per step.
+ * sum() reduces each column over a balanced tree in parallel and starts from the first
+ * element, so it needs no fresh encryption of 0. Its result is only as random as its inputs.
+ *
+ * Serialized as a plain ElGamal_Ciphertext[], so the alice/bob wire format does not change.
+ */
+public final class ElGamalCiphertextBatch implements Serializable
+{
+	private static final long serialVersionUID = -5312489657604521837L;
+
+	private final transient ElGamalPublicKey pubKey;
+	private final transient BigInteger [] gr;
+	private final transient BigInteger [] hrgm;
+
+	private ElGamalCiphertextBatch(ElGamalPublicKey pubKey, BigInteger [] gr, BigInteger [] hrgm)
+	{
+		this.pubKey = pubKey;
+		this.gr = gr;
+		this.hrgm = hrgm;
+	}
+
+	// Wrap existing ciphertexts, e.g. received from the other party
+	public static ElGamalCiphertextBatch valueOf(ElGamal_Ciphertext [] ciphertext, ElGamalPublicKey pubKey)
+	{
+		BigInteger [] gr = new BigInteger[ciphertext.length];
+		BigInteger [] hrgm = new BigInteger[ciphertext.length];
+		for (int i = 0; i < ciphertext.length; i++)
+		{
+			gr[i] = check(ciphertext[i].gr, pubKey, i);
+			hrgm[i] = check(ciphertext[i].hrgm, pubKey, i);
+		}
+		return new ElGamalCiphertextBatch(pubKey, gr, hrgm);
+	}
+
+	public static ElGamalCiphertextBatch valueOf(List<ElGamal_Ciphertext> ciphertext, ElGamalPublicKey pubKey)
+	{
+		return valueOf(ciphertext.toArray(new ElGamal_Ciphertext[ciphertext.size()]), pubKey);
+	}
+
+	public static ElGamalCiphertextBatch encrypt(final BigInteger [] plaintext, final ElGamalPublicKey pubKey)
+	{
+		final BigInteger [] gr = new BigInteger[plaintext.length];
+		final BigInteger [] hrgm = new BigInteger[plaintext.length];
+		Parallel.forEach(Parallel.defaultPool(), plaintext.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				ElGamal_Ciphertext c = ElGamalCipher.encrypt(pubKey, plaintext[i]);
+				gr[i] = c.gr;
+				hrgm[i] = c.hrgm;
+			}
+		});
+		return new ElGamalCiphertextBatch(pubKey, gr, hrgm);
+	}
+
+	public static ElGamalCiphertextBatch encrypt(long [] plaintext, ElGamalPublicKey pubKey)
+	{
+		BigInteger [] message = new BigInteger[plaintext.length];
+		for (int i = 0; i < plaintext.length; i++)
+		{
+			message[i] = BigInteger.valueOf(plaintext[i]);
+		}
+		return encrypt(message, pubKey);
+	}
+
+	public int length()
+	{
+		return gr.length;
+	}
+
+	public ElGamal_Ciphertext get(int i)
+	{
+		return new ElGamal_Ciphertext(gr[i], hrgm[i]);
+	}
+
+	public ElGamal_Ciphertext [] toArray()
+	{
+		ElGamal_Ciphertext [] c = new ElGamal_Ciphertext[gr.length];
+		for (int i = 0; i < c.length; i++)
+		{
+			c[i] = new ElGamal_Ciphertext(gr[i], hrgm[i]);
+		}
+		return c;
+	}
+
+	public ElGamalPublicKey getPublicKey()
+	{
+		return pubKey;
+	}
+
+	public BigInteger [] decrypt(final ElGamalPrivateKey privKey)
+	{
+		final BigInteger [] plaintext = new BigInteger[gr.length];
+		Parallel.forEach(Parallel.defaultPool(), gr.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				plaintext[i] = ElGamalCipher.decrypt(privKey, new ElGamal_Ciphertext(gr[i], hrgm[i]));
+			}
+		});
+		return plaintext;
+	}
+
+	//-----------------------Element-wise operations----------------------------------------------
+
+	// [[a_i + b_i]] = (gr_a * gr_b, hrgm_a * hrgm_b)
+	public ElGamalCiphertextBatch add(ElGamalCiphertextBatch other)
+	{
+		if (!same_key(other.pubKey, pubKey))
+		{
+			throw new IllegalArgumentException("Ciphertexts are under different ElGamal keys!");
+		}
+		if (other.gr.length != gr.length)
+		{
+			throw new IllegalArgumentException("Batches are NOT the same size!");
+		}
+		BigInteger [] sum_gr = new BigInteger[gr.length];
+		BigInteger [] sum_hrgm = new BigInteger[gr.length];
+		for (int i = 0; i < gr.length; i++)
+		{
+			sum_gr[i] = gr[i].multiply(other.gr[i]).mod(pubKey.p);
+			sum_hrgm[i] = hrgm[i].multiply(other.hrgm[i]).mod(pubKey.p);
+		}
+		return new ElGamalCiphertextBatch(pubKey, sum_gr, sum_hrgm);
+	}
+
+	// [[k * a_i]] = (gr^k, hrgm^k)
+	public ElGamalCiphertextBatch multiply(final BigInteger scalar)
+	{
+		final BigInteger [] result_gr = new BigInteger[gr.length];
+		final BigInteger [] result_hrgm = new BigInteger[gr.length];
+		Parallel.forEach(Parallel.defaultPool(), gr.length, new IntConsumer()
+		{
+			public void accept(int i)
+			{
+				result_gr[i] = gr[i].modPow(scalar, pubKey.p);
+				result_hrgm[i] = hrgm[i].modPow(scalar, pubKey.p);
+			}
+		});
+		return new ElGamalCiphertextBatch(pubKey, result_gr, result_hrgm);
+	}
+
+	public ElGamalCiphertextBatch multiply(long scalar)
+	{
+		return multiply(BigInteger.valueOf(scalar));
+	}
+
+	//-----------------------Sums----------------------------------------------
+
+	// [[a_0 + ... + a_{l-1}]], the trivial (1, 1) for an empty batch
+	public ElGamal_Ciphertext sum()
+	{
+		if (gr.length == 0)
+		{
+			return new ElGamal_Ciphertext(BigInteger.ONE, BigInteger.ONE);
+		}
+		return new ElGamal_Ciphertext(product(gr), product(hrgm));
+	}
+
+	private BigInteger product(final BigInteger [] column)
+	{
+		return Parallel.reduce(Parallel.defaultPool(), column.length, new IntFunction<BigInteger>()
+		{
+			public BigInteger apply(int i)
+			{
+				return column[i];
+			}
+		},
+		new BinaryOperator<BigInteger>()
+		{
+			public BigInteger apply(BigInteger a, BigInteger b)
+			{
+				return a.multiply(b).mod(pubKey.p);
+			}
+		});
+	}
+
+	//-----------------------Helpers----------------------------------------------
+
+	private static BigInteger check(BigInteger c, ElGamalPublicKey pubKey, int i)
+	{
+		if (c.signum() <= 0 || c.compareTo(pubKey.p) >= 0)
+		{
+			throw new IllegalArgumentException("Ciphertext " + i + " is not in Zp*: " + c);
+		}
+		return c;
+	}
+
+	// Same group and the same h = g^x, a shared p alone is not enough
+	private static boolean same_key(ElGamalPublicKey a, ElGamalPublicKey b)
+	{
+		if (a == b)
+		{
+			return true;
+		}
+		return a.p.equals(b.p) && a.g.equals(b.g) && a.h.equals(b.h);
+	}
+
+	// Sent as a plain ElGamal_Ciphertext[]
+	private Object writeReplace() throws ObjectStreamException
+	{
+		return toArray();
+	}
+}
@@ -6,16 +6,28 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.security.PrivateKey;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
 import security.generic.CipherConstants;
+import security.generic.DiscreteLogTable;
+import security.generic.Parallel;
 
 public final class ElGamalPrivateKey implements ElGamal_Key, Serializable, PrivateKey, Runnable, CipherConstants
 {
 	//Private Key parameters
 	protected final BigInteger x;
-    protected final Map <BigInteger, BigInteger> LUT;
+	
+	// Baby-step/giant-step decryption: LUT holds g^j for j < baby_steps, giant = g^{baby_steps} (mod p).
+	// Both are built on the first decryption and never serialized.
+	// Plaintexts in (-baby_steps * max_giant_steps, baby_steps * max_giant_steps) can be decrypted.
+	public final static int DEFAULT_TABLE_SIZE = 1 << 16;
+	public final static long DEFAULT_MAX_GIANT_STEPS = 1 << 16;
+	protected final int baby_steps;
+	protected final long max_giant_steps;
+	private transient volatile DiscreteLogTable LUT = null;
+	private transient volatile BigInteger giant = null;
+	private transient volatile BigInteger giant_inverse = null;
 	
 	// Taken from ElGamal Public Key
     protected final BigInteger p;
@@ -26,12 +38,31 @@ public final class ElGamalPrivateKey implements ElGamal_Key, Serializable, Priva
     
 	public ElGamalPrivateKey(BigInteger p, BigInteger x, BigInteger g, BigInteger h)
 	{
+		this(p, x, g, h, DEFAULT_TABLE_SIZE, DEFAULT_MAX_GIANT_STEPS);
+	}
+	
+	/**
+	 * @param table_size - number of baby steps g^j kept in memory
+	 * @param max_giant_steps - giant steps to try in each direction before giving up,
+	 * a plaintext m is found after about |m|/table_size of them
+	 */
+	public ElGamalPrivateKey(BigInteger p, BigInteger x, BigInteger g, BigInteger h, int table_size, long max_giant_steps)
+	{
+		if (table_size < 1 || table_size > Integer.MAX_VALUE / 2)
+		{
+			throw new IllegalArgumentException("Decryption table size must be in [1, 2^30)!");
+		}
+		if (max_giant_steps < 1)
+		{
+			throw new IllegalArgumentException("Need at least one giant step!");
+		}
 		this.p = p;
 		this.x = x;
 		this.g = g;
 		this.h = h;
-		this.LUT = new HashMap<BigInteger, BigInteger>(FIELD_SIZE.intValue(), (float) 1.0);
-		this.decrypt_table();
+		// The LUT itself is built when it is first needed, see decrypt_table()
+		this.baby_steps = table_size;
+		this.max_giant_steps = max_giant_steps;
 	}
 	
 	public String getAlgorithm()
@@ -60,39 +91,140 @@ public final class ElGamalPrivateKey implements ElGamal_Key, Serializable, Priva
         aOutputStream.defaultWriteObject();
     }
     
-    // Generate Lookup Table, plain text space is [0, p - 1)
-    private void decrypt_table() 
+    // Build the baby steps (and giant steps) once, readers only see them after they are complete
+    private synchronized DiscreteLogTable decrypt_table() 
 	{
-		// Get maximum size of x - y + r + 2^l
-    	// Assume maximum value is u: biggest value in DGK which is closest prime from 2^l l = 16 default.
-		BigInteger decrypt_size = FIELD_SIZE.add(FIELD_SIZE).subtract(TWO).add(TWO.pow(16));
-    	long start_time = System.nanoTime();
-    	System.out.println("Building Lookup Table g^m --> m for ElGamal");
-    	BigInteger message = BigInteger.ZERO;
-		while (!message.equals(decrypt_size))
-		{
-			BigInteger gm = this.g.modPow(message, this.p);
-			this.LUT.put(gm, message);
-			message = message.add(BigInteger.ONE);
-		}
-		
-		// For negative numbers, go from p - 2 and go down a bit
-		message = this.p.subtract(TWO);
-		while (!message.equals(this.p.subtract(BigInteger.TEN)))
+		if (this.LUT != null)
 		{
-			BigInteger gm = this.g.modPow(message, this.p);
-			this.LUT.put(gm, message);
-			message = message.subtract(BigInteger.ONE);
+			return this.LUT;
 		}
-    	System.out.println("Finished Building Lookup Table g^m --> m for ElGamal in " + 
-		(System.nanoTime() - start_time)/BigInteger.TEN.pow(9).longValue() + " seconds");
+		DiscreteLogTable table = new DiscreteLogTable(this.g, this.p, this.baby_steps);
+		BigInteger step = this.g.modPow(BigInteger.valueOf(this.baby_steps), this.p);
+		this.giant = step;
+		this.giant_inverse = step.modInverse(this.p);
+		this.LUT = table;
+		return table;
 	}
+    
+    // Build the decryption table now instead of on the first decryption
+    public void precompute()
+    {
+    	decrypt_table();
+    }
 
 	public void run() 
 	{
 		decrypt_table();
 	}
 	
+	/**
+	 * m with g^m = gm (mod p), or null if |m| is out of range.
+	 * A negative m is returned as p - 1 + m, like the old lookup table.
+	 * 
+	 * Small plaintexts are one or two lookups: gm itself for m in [0, baby_steps),
+	 * gm * giant for m in [-baby_steps, 0). Otherwise giant step i checks
+	 * gm * giant^{-i} (m = i * baby_steps + j) and gm * giant^i (m = j - i * baby_steps).
+	 * The giant steps are split into parallel strides that stop once any stride finds m.
+	 * The table only compares fingerprints, so every hit is checked against gm before it is accepted.
+	 */
+	protected BigInteger log(final BigInteger gm)
+	{
+		DiscreteLogTable table = this.LUT;
+		if (table == null)
+		{
+			table = decrypt_table();
+		}
+		final DiscreteLogTable LUT = table;
+		final BigInteger giant = this.giant;
+		final BigInteger giant_inverse = this.giant_inverse;
+		final long B = this.baby_steps;
+		
+		long j = LUT.get(gm);
+		if (j != -1 && is_log(j, gm))
+		{
+			return exponent(j);
+		}
+		j = LUT.get(gm.multiply(giant).mod(this.p));
+		if (j != -1 && is_log(j - B, gm))
+		{
+			return exponent(j - B);
+		}
+		if (this.max_giant_steps == 1)
+		{
+			return null;
+		}
+		
+		final AtomicLong found = new AtomicLong(Long.MIN_VALUE);
+		final long giant_steps = this.max_giant_steps - 1;
+		final int strides = (int) Math.min(giant_steps, Parallel.defaultPool().getParallelism() * 4);
+		final long stride = (giant_steps + strides - 1) / strides;
+		Parallel.forEach(Parallel.defaultPool(), strides, new IntConsumer()
+		{
+			public void accept(int s)
+			{
+				long start = 1 + s * stride;
+				long end = Math.min(max_giant_steps, start + stride);
+				if (start >= end)
+				{
+					return;
+				}
+				BigInteger positive = gm.multiply(giant_inverse.modPow(BigInteger.valueOf(start), p)).mod(p);
+				BigInteger negative = gm.multiply(giant.modPow(BigInteger.valueOf(start + 1), p)).mod(p);
+				for (long i = start; i < end && found.get() == Long.MIN_VALUE; i++)
+				{
+					// gm * g^{-i * B} = g^j
+					long j = LUT.get(positive);
+					if (j != -1 && is_log(i * B + j, gm))
+					{
+						found.compareAndSet(Long.MIN_VALUE, i * B + j);
+						return;
+					}
+					// gm * g^{(i + 1) * B} = g^j
+					j = LUT.get(negative);
+					if (j != -1 && is_log(j - (i + 1) * B, gm))
+					{
+						found.compareAndSet(Long.MIN_VALUE, j - (i + 1) * B);
+						return;
+					}
+					positive = positive.multiply(giant_inverse).mod(p);
+					negative = negative.multiply(giant).mod(p);
+				}
+			}
+		});
+		long m = found.get();
+		if (m == Long.MIN_VALUE)
+		{
+			return null;
+		}
+		return exponent(m);
+	}
+	
+	// m as an exponent, a negative m is p - 1 + m
+	private BigInteger exponent(long m)
+	{
+		if (m < 0)
+		{
+			return this.p.subtract(BigInteger.ONE).add(BigInteger.valueOf(m));
+		}
+		return BigInteger.valueOf(m);
+	}
+	
+	// True if g^m = gm (mod p), rules out a table hit on a fingerprint alone
+	private boolean is_log(long m, BigInteger gm)
+	{
+		return this.g.modPow(exponent(m), this.p).equals(gm);
+	}
+	
+	public int getTableSize()
+	{
+		return this.baby_steps;
+	}
+	
+	public long getMaxGiantSteps()
+	{
+		return this.max_giant_steps;
+	}
+	
 	public String toString()
 	{
     	String answer = "";
@@ -7,12 +7,19 @@ import java.io.Serializable;
 import java.math.BigInteger;
 import java.security.PublicKey;
 
+import security.generic.FixedBaseTable;
+
 public final class ElGamalPublicKey implements Serializable, PublicKey, ElGamal_Key
 {
 	private static final long serialVersionUID = -6796919675914392847L;
 	protected final BigInteger p;
 	protected final BigInteger g;
 	protected final BigInteger h;
+	
+	// Fixed-base tables {g, h} for exponents below p, published together, null until built
+	// Default window: |p|/8 rows of 255 residues per table, about 4 MB each for a 1024-bit p
+	public final static int DEFAULT_WINDOW = 8;
+	private transient volatile FixedBaseTable [] LUT = null;
 
 	public ElGamalPublicKey(BigInteger p, BigInteger g, BigInteger h)
 	{
@@ -52,6 +59,55 @@ public final class ElGamalPublicKey implements Serializable, PublicKey, ElGamal_
         aOutputStream.defaultWriteObject();
     }
     
+    // Build both tables before they are published, called with the lock held
+    private FixedBaseTable [] generateLUT(int window)
+    {
+    	FixedBaseTable [] table = new FixedBaseTable[] {
+    			new FixedBaseTable(this.g, this.p, this.p.bitLength(), window),
+    			new FixedBaseTable(this.h, this.p, this.p.bitLength(), window)};
+    	this.LUT = table;
+    	return table;
+    }
+    
+    // Build the g and h tables now instead of on the first encryption, replacing any built before
+    public synchronized void precompute(int window)
+    {
+    	generateLUT(window);
+    }
+    
+    // Only the first caller builds the tables, parallel encryptions on a fresh key wait for it
+    private synchronized FixedBaseTable [] default_table()
+    {
+    	if (this.LUT != null)
+    	{
+    		return this.LUT;
+    	}
+    	return generateLUT(DEFAULT_WINDOW);
+    }
+    
+    private FixedBaseTable [] table()
+    {
+    	FixedBaseTable [] table = this.LUT;
+    	if (table == null)
+    	{
+    		table = default_table();
+    	}
+    	return table;
+    }
+    
+    // g^e (mod p)
+    protected BigInteger gPow(BigInteger e)
+    {
+    	return table()[0].pow(e);
+    }
+    
+    // {g^r, h^r} (mod p), both from one pass over the digits of r
+    protected BigInteger [] grhr(BigInteger r)
+    {
+    	FixedBaseTable [] table = table();
+    	return FixedBaseTable.pow(table[0], table[1], r);
+    }
+    
     public String toString()
     {
     	String answer = "";
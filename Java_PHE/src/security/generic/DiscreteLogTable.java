@@ -0,0 +1,164 @@
+package security.generic;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+
+/*
+ * Discrete log table base^m (mod modulus) -> m for m in [0, size), e.g. the DGK decryption
+ * table g^{vp * m} (mod p) or the baby steps of ElGamal decryption.
+ * Groups other than Z_p^* pass their own residues, e.g. encoded elliptic curve points m * G.
+ *
+ * Open addressing over one long[]: every entry packs a fingerprint (the low
+ * bits of the residue) above the value m + 1, 0 marks an empty slot.
+ * That is 8 bytes per slot instead of a BigInteger key, a boxed value
+ * and a HashMap node per entry, and a lookup is a few array reads.
+ *
+ * If two residues share a fingerprint, the slot is marked ambiguous and both are
+ * kept with their exact residue in a small overflow map, which is normally empty.
+ *
+ * The table is filled once in the constructor and only read after that,
+ * so it can be shared between threads.
+ */
+public final class DiscreteLogTable
+{
+	private final long size;
+
+	private final long [] slots;
+	private final int shift;
+	private final int value_bits;
+	private final long value_mask;
+	private final HashMap<BigInteger, Long> overflow = new HashMap<BigInteger, Long>();
+
+	public DiscreteLogTable(BigInteger base, BigInteger modulus, int size)
+	{
+		this(powers(base, modulus, check(size)));
+	}
+
+	// residue[m] -> m, the residues must be distinct
+	public DiscreteLogTable(BigInteger [] residue)
+	{
+		int size = check(residue.length);
+		this.size = size;
+
+		// About 3/4 full at most
+		int capacity = Integer.highestOneBit(size + size / 3) << 1;
+		this.slots = new long[capacity];
+		this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		// Enough bits for m + 1 <= size, and all ones is kept for ambiguous slots
+		this.value_bits = 64 - Long.numberOfLeadingZeros(this.size + 1);
+		this.value_mask = (1L << value_bits) - 1;
+
+		for (int m = 0; m < residue.length; m++)
+		{
+			put(residue, m);
+		}
+	}
+
+	private static int check(int size)
+	{
+		if (size < 1 || size > Integer.MAX_VALUE / 2)
+		{
+			throw new IllegalArgumentException("Table size must be in [1, 2^30)!");
+		}
+		return size;
+	}
+
+	/**
+	 * base^0, ..., base^{size - 1} (mod m). The range is cut into strides that run in parallel,
+	 * each stride pays one modPow for its first power and one multiplication per power after that.
+	 */
+	public static BigInteger [] powers(final BigInteger base, final BigInteger m, int size)
+	{
+		final BigInteger [] table = new BigInteger[size];
+		if (size == 0)
+		{
+			return table;
+		}
+		final int strides = Math.min(size, Parallel.defaultPool().getParallelism() * 4);
+		final int stride = (size + strides - 1) / strides;
+		Parallel.forEach(Parallel.defaultPool(), strides, new IntConsumer()
+		{
+			public void accept(int s)
+			{
+				int start = s * stride;
+				int end = Math.min(table.length, start + stride);
+				if (start >= end)
+				{
+					return;
+				}
+				BigInteger power = base.modPow(BigInteger.valueOf(start), m);
+				for (int i = start; i < end; i++)
+				{
+					table[i] = power;
+					power = power.multiply(base).mod(m);
+				}
+			}
+		});
+		return table;
+	}
+
+	private long fingerprint(BigInteger residue)
+	{
+		return residue.longValue() >>> value_bits;
+	}
+
+	private int index(long fingerprint)
+	{
+		return (int) ((fingerprint * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	private void put(BigInteger [] residue, int m)
+	{
+		long fp = fingerprint(residue[m]);
+		int i = index(fp);
+		while (slots[i] != 0)
+		{
+			if ((slots[i] >>> value_bits) == fp)
+			{
+				long value = slots[i] & value_mask;
+				if (value != value_mask)
+				{
+					// First collision on this fingerprint, move the old entry to the overflow map
+					overflow.put(residue[(int) value - 1], value - 1);
+					slots[i] = (fp << value_bits) | value_mask;
+				}
+				overflow.put(residue[m], (long) m);
+				return;
+			}
+			i = (i + 1) & (slots.length - 1);
+		}
+		slots[i] = (fp << value_bits) | (m + 1);
+	}
+
+	/*
+	 * m in [0, size) with base^m = residue (mod modulus), or -1 if the residue is not in the table.
+	 * Only the fingerprint is compared, so a residue that is not in the table can still return
+	 * some m. Callers that look up non-members, like the giant steps of BSGS, must check m.
+	 */
+	public long get(BigInteger residue)
+	{
+		long fp = fingerprint(residue);
+		int i = index(fp);
+		while (slots[i] != 0)
+		{
+			if ((slots[i] >>> value_bits) == fp)
+			{
+				long value = slots[i] & value_mask;
+				if (value == value_mask)
+				{
+					Long m = overflow.get(residue);
+					return (m == null) ? -1 : m;
+				}
+				return value - 1;
+			}
+			i = (i + 1) & (slots.length - 1);
+		}
+		return -1;
+	}
+
+	public long size()
+	{
+		return size;
+	}
+}
@@ -0,0 +1,218 @@
+package security.generic;
+
+import java.math.BigInteger;
+
+/*
+ * Fixed-base windowed exponentiation.
+ *
+ * For a base b that is used over and over (a public key element), precompute
+ * table[i][j] = b^{j * 2^{w*i}} (mod m) for every w-bit window i and digit j.
+ * Then b^e is one table lookup and one multiplication per window of e,
+ * with no squarings at all.
+ *
+ * Memory is ceil(max_bits / w) * (2^w - 1) residues, so a larger window
+ * trades memory for fewer multiplications. Exponents longer than max_bits
+ * fall back to BigInteger.modPow.
+ *
+ * Two tables with the same modulus and layout can share one exponent,
+ * e.g. (g^r, h^r) in ElGamal, see pow(FixedBaseTable, FixedBaseTable, BigInteger).
+ *
+ * For an odd modulus the table is kept in Montgomery form (xR mod m), so each
+ * step is a REDC (masks and shifts) instead of a full division by m.
+ *
+ * The table is immutable once built, so it can be shared between threads.
+ */
+public final class FixedBaseTable
+{
+	public final static int DEFAULT_WINDOW = 4;
+
+	private final BigInteger base;
+	private final BigInteger modulus;
+	private final int window;
+	private final int max_bits;
+	private final BigInteger [][] table;
+
+	// Montgomery parameters, R = 2^k > m. k = 0 if m is even and plain mod is used
+	private final int k;
+	private final BigInteger mask;
+	// -m^{-1} (mod R)
+	private final BigInteger m_prime;
+
+	public FixedBaseTable(BigInteger base, BigInteger modulus, int max_bits)
+	{
+		this(base, modulus, max_bits, DEFAULT_WINDOW);
+	}
+
+	public FixedBaseTable(BigInteger base, BigInteger modulus, int max_bits, int window)
+	{
+		if (window < 1 || window > 16)
+		{
+			throw new IllegalArgumentException("Window must be in [1, 16] bits!");
+		}
+		if (max_bits < 1)
+		{
+			throw new IllegalArgumentException("Exponent size must be positive!");
+		}
+		this.base = base.mod(modulus);
+		this.modulus = modulus;
+		this.window = window;
+		this.max_bits = max_bits;
+
+		if (modulus.testBit(0))
+		{
+			// Round up to whole 64-bit words so the masks line up with BigInteger's limbs
+			this.k = ((modulus.bitLength() + 63) / 64) * 64;
+			BigInteger R = BigInteger.ONE.shiftLeft(k);
+			this.mask = R.subtract(BigInteger.ONE);
+			this.m_prime = modulus.modInverse(R).negate().mod(R);
+		}
+		else
+		{
+			this.k = 0;
+			this.mask = null;
+			this.m_prime = null;
+		}
+
+		int windows = (max_bits + window - 1) / window;
+		int digits = 1 << window;
+		this.table = new BigInteger[windows][digits];
+
+		// b_i = b^{2^{w*i}}, row i holds b_i^1, ..., b_i^{2^w - 1}
+		BigInteger b_i = (k == 0) ? this.base : this.base.shiftLeft(k).mod(modulus);
+		for (int i = 0; i < windows; i++)
+		{
+			table[i][1] = b_i;
+			for (int j = 2; j < digits; j++)
+			{
+				table[i][j] = multiply(table[i][j - 1], b_i);
+			}
+			// b_{i+1} = b_i^{2^w} = b_i^{2^w - 1} * b_i
+			b_i = multiply(table[i][digits - 1], b_i);
+		}
+	}
+
+	// a * b (mod m), both in Montgomery form if m is odd
+	private BigInteger multiply(BigInteger a, BigInteger b)
+	{
+		if (k == 0)
+		{
+			return a.multiply(b).mod(modulus);
+		}
+		return reduce(a.multiply(b));
+	}
+
+	// REDC(T) = T R^{-1} (mod m) for 0 <= T < mR
+	private BigInteger reduce(BigInteger T)
+	{
+		BigInteger u = T.and(mask).multiply(m_prime).and(mask);
+		u = T.add(u.multiply(modulus)).shiftRight(k);
+		if (u.compareTo(modulus) >= 0)
+		{
+			u = u.subtract(modulus);
+		}
+		return u;
+	}
+
+	// base^exponent (mod m)
+	public BigInteger pow(BigInteger exponent)
+	{
+		if (exponent.signum() < 0 || exponent.bitLength() > max_bits)
+		{
+			return base.modPow(exponent, modulus);
+		}
+		BigInteger answer = null;
+		for (int i = 0; i < table.length; i++)
+		{
+			int digit = 0;
+			for (int k = window - 1; k >= 0; k--)
+			{
+				digit <<= 1;
+				if (exponent.testBit(i * window + k))
+				{
+					digit |= 1;
+				}
+			}
+			if (digit != 0)
+			{
+				answer = (answer == null) ? table[i][digit] : multiply(answer, table[i][digit]);
+			}
+		}
+		if (answer == null)
+		{
+			return BigInteger.ONE.mod(modulus);
+		}
+		// xR -> x
+		return (k == 0) ? answer : reduce(answer);
+	}
+
+	public BigInteger pow(long exponent)
+	{
+		return pow(BigInteger.valueOf(exponent));
+	}
+
+	/**
+	 * {a^e, b^e} (mod m) for two tables over the same modulus, window and max_bits.
+	 * Each window digit of e is read once and used in both tables.
+	 */
+	public static BigInteger [] pow(FixedBaseTable a, FixedBaseTable b, BigInteger exponent)
+	{
+		if (!a.modulus.equals(b.modulus) || a.window != b.window || a.max_bits != b.max_bits)
+		{
+			throw new IllegalArgumentException("Tables do not share a modulus and layout!");
+		}
+		if (exponent.signum() < 0 || exponent.bitLength() > a.max_bits)
+		{
+			return new BigInteger[] {a.pow(exponent), b.pow(exponent)};
+		}
+		BigInteger answer_a = null;
+		BigInteger answer_b = null;
+		for (int i = 0; i < a.table.length; i++)
+		{
+			int digit = 0;
+			for (int k = a.window - 1; k >= 0; k--)
+			{
+				digit <<= 1;
+				if (exponent.testBit(i * a.window + k))
+				{
+					digit |= 1;
+				}
+			}
+			if (digit != 0)
+			{
+				answer_a = (answer_a == null) ? a.table[i][digit] : a.multiply(answer_a, a.table[i][digit]);
+				answer_b = (answer_b == null) ? b.table[i][digit] : b.multiply(answer_b, b.table[i][digit]);
+			}
+		}
+		if (answer_a == null)
+		{
+			BigInteger one = BigInteger.ONE.mod(a.modulus);
+			return new BigInteger[] {one, one};
+		}
+		if (a.k != 0)
+		{
+			answer_a = a.reduce(answer_a);
+			answer_b = b.reduce(answer_b);
+		}
+		return new BigInteger[] {answer_a, answer_b};
+	}
+
+	public BigInteger getBase()
+	{
+		return base;
+	}
+
+	public BigInteger getModulus()
+	{
+		return modulus;
+	}
+
+	public int getWindow()
+	{
+		return window;
+	}
+
+	public int getMaxBits()
+	{
+		return max_bits;
+	}
+}
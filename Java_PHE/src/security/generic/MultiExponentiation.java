@@ -0,0 +1,218 @@
+package security.generic;
+
+import java.math.BigInteger;
+
+/*
+ * Simultaneous multi-exponentiation: computes b_0^{e_0} * ... * b_{n-1}^{e_{n-1}} (mod m)
+ * sharing the squarings between all bases, instead of n independent modPow calls.
+ *
+ * Straus (interleaved fixed windows) is used for few bases,
+ * Pippenger (bucket method) for many bases.
+ *
+ * Negative exponents are handled by inverting the base, so every base
+ * with a negative exponent must be invertible mod m.
+ */
+public final class MultiExponentiation
+{
+	// At or below this many bases, Straus beats Pippenger
+	public final static int STRAUS_LIMIT = 32;
+	// Window width for Straus, each base gets a table of 2^w - 1 powers
+	private final static int STRAUS_WINDOW = 4;
+
+	private MultiExponentiation()
+	{
+
+	}
+
+	public static BigInteger multiexp(BigInteger [] bases, long [] exponents, BigInteger modulus)
+	{
+		BigInteger [] e = new BigInteger[exponents.length];
+		for (int i = 0; i < e.length; i++)
+		{
+			e[i] = BigInteger.valueOf(exponents[i]);
+		}
+		return multiexp(bases, e, modulus);
+	}
+
+	public static BigInteger multiexp(BigInteger [] bases, BigInteger [] exponents, BigInteger modulus)
+	{
+		if (bases.length != exponents.length)
+		{
+			throw new IllegalArgumentException("Arrays are NOT the same size!");
+		}
+
+		// Drop zero exponents, make all exponents positive
+		int size = 0;
+		BigInteger [] b = new BigInteger[bases.length];
+		BigInteger [] e = new BigInteger[bases.length];
+		for (int i = 0; i < bases.length; i++)
+		{
+			int sign = exponents[i].signum();
+			if (sign == 0)
+			{
+				continue;
+			}
+			if (sign < 0)
+			{
+				b[size] = bases[i].modInverse(modulus);
+				e[size] = exponents[i].negate();
+			}
+			else
+			{
+				b[size] = bases[i].mod(modulus);
+				e[size] = exponents[i];
+			}
+			++size;
+		}
+
+		if (size == 0)
+		{
+			return BigInteger.ONE.mod(modulus);
+		}
+		else if (size == 1)
+		{
+			return b[0].modPow(e[0], modulus);
+		}
+		else if (size <= STRAUS_LIMIT)
+		{
+			return straus(b, e, size, modulus);
+		}
+		else
+		{
+			return pippenger(b, e, size, modulus);
+		}
+	}
+
+	// Straus: precompute b_i^1, ..., b_i^{2^w - 1}, then one shared pass of squarings
+	protected static BigInteger straus(BigInteger [] bases, BigInteger [] exponents, int size, BigInteger modulus)
+	{
+		int table_size = 1 << STRAUS_WINDOW;
+		int bits = max_bits(exponents, size);
+
+		BigInteger [][] table = new BigInteger[size][table_size];
+		for (int i = 0; i < size; i++)
+		{
+			table[i][1] = bases[i];
+			for (int j = 2; j < table_size; j++)
+			{
+				table[i][j] = table[i][j - 1].multiply(bases[i]).mod(modulus);
+			}
+		}
+
+		BigInteger result = BigInteger.ONE;
+		int windows = (bits + STRAUS_WINDOW - 1) / STRAUS_WINDOW;
+		for (int w = windows - 1; w >= 0; w--)
+		{
+			if (w != windows - 1)
+			{
+				for (int s = 0; s < STRAUS_WINDOW; s++)
+				{
+					result = result.multiply(result).mod(modulus);
+				}
+			}
+			for (int i = 0; i < size; i++)
+			{
+				int digit = digit(exponents[i], w * STRAUS_WINDOW, STRAUS_WINDOW);
+				if (digit != 0)
+				{
+					result = result.multiply(table[i][digit]).mod(modulus);
+				}
+			}
+		}
+		return result;
+	}
+
+	// Pippenger: for each c-bit window, drop every base into the bucket of its digit,
+	// then combine the buckets as sum_j j * bucket_j using two running products.
+	protected static BigInteger pippenger(BigInteger [] bases, BigInteger [] exponents, int size, BigInteger modulus)
+	{
+		int c = window_size(size);
+		int bits = max_bits(exponents, size);
+		int windows = (bits + c - 1) / c;
+		BigInteger [] buckets = new BigInteger[1 << c];
+
+		BigInteger result = BigInteger.ONE;
+		for (int w = windows - 1; w >= 0; w--)
+		{
+			if (w != windows - 1)
+			{
+				for (int s = 0; s < c; s++)
+				{
+					result = result.multiply(result).mod(modulus);
+				}
+			}
+
+			for (int j = 0; j < buckets.length; j++)
+			{
+				buckets[j] = null;
+			}
+			for (int i = 0; i < size; i++)
+			{
+				int digit = digit(exponents[i], w * c, c);
+				if (digit != 0)
+				{
+					if (buckets[digit] == null)
+					{
+						buckets[digit] = bases[i];
+					}
+					else
+					{
+						buckets[digit] = buckets[digit].multiply(bases[i]).mod(modulus);
+					}
+				}
+			}
+
+			// running = prod_{k >= j} bucket_k, window = prod_j running_j = prod_j bucket_j^j
+			BigInteger running = null;
+			BigInteger window = null;
+			for (int j = buckets.length - 1; j >= 1; j--)
+			{
+				if (buckets[j] != null)
+				{
+					running = (running == null) ? buckets[j] : running.multiply(buckets[j]).mod(modulus);
+				}
+				if (running != null)
+				{
+					window = (window == null) ? running : window.multiply(running).mod(modulus);
+				}
+			}
+			if (window != null)
+			{
+				result = result.multiply(window).mod(modulus);
+			}
+		}
+		return result;
+	}
+
+	// Roughly log2(n) - 2 bits per window, at least 2
+	private static int window_size(int size)
+	{
+		int log = 31 - Integer.numberOfLeadingZeros(size);
+		return Math.max(2, Math.min(16, log - 2));
+	}
+
+	private static int max_bits(BigInteger [] exponents, int size)
+	{
+		int bits = 0;
+		for (int i = 0; i < size; i++)
+		{
+			bits = Math.max(bits, exponents[i].bitLength());
+		}
+		return bits;
+	}
+
+	// Bits [start, start + width) of a non-negative x
+	private static int digit(BigInteger x, int start, int width)
+	{
+		int digit = 0;
+		for (int k = width - 1; k >= 0; k--)
+		{
+			digit <<= 1;
+			if (x.testBit(start + k))
+			{
+				digit |= 1;
+			}
+		}
+		return digit;
+	}
+}
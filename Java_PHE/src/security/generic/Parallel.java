@@ -0,0 +1,134 @@
+package security.generic;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/*
+ * Small fork/join helper for the bulk operations in the cipher classes.
+ * Each index is handed to the body exactly once, so callers can write
+ * straight into a pre-allocated result array and keep the input order.
+ * reduce() combines elements over a balanced tree, so an associative
+ * operation needs no identity element.
+ */
+public final class Parallel
+{
+	// Below this many elements per leaf a reduction is not worth forking
+	public final static int REDUCE_GRAIN = 32;
+
+	private Parallel()
+	{
+
+	}
+
+	public static ForkJoinPool defaultPool()
+	{
+		return ForkJoinPool.commonPool();
+	}
+
+	// Run body.accept(i) for every i in [0, size) on the given pool
+	public static void forEach(ForkJoinPool pool, int size, IntConsumer body)
+	{
+		if (size <= 0)
+		{
+			return;
+		}
+		// About four leaves per worker to even out slow leaves
+		int grain = Math.max(1, size / (pool.getParallelism() * 4));
+		pool.invoke(new Range(0, size, grain, body));
+	}
+
+	/**
+	 * Combine element(0), ..., element(size - 1) with an associative operation,
+	 * splitting the range in halves across the pool.
+	 * @return the combined value, or null if size <= 0
+	 */
+	public static <T> T reduce(ForkJoinPool pool, int size, IntFunction<T> element, BinaryOperator<T> combine)
+	{
+		if (size <= 0)
+		{
+			return null;
+		}
+		int grain = Math.max(REDUCE_GRAIN, size / (pool.getParallelism() * 4));
+		Reduction<T> root = new Reduction<T>(0, size, grain, element, combine);
+		if (size <= grain)
+		{
+			return root.compute();
+		}
+		return pool.invoke(root);
+	}
+
+	private static final class Reduction<T> extends RecursiveTask<T>
+	{
+		private static final long serialVersionUID = -2284937761406520186L;
+
+		private final int start;
+		private final int end;
+		private final int grain;
+		private final IntFunction<T> element;
+		private final BinaryOperator<T> combine;
+
+		Reduction(int start, int end, int grain, IntFunction<T> element, BinaryOperator<T> combine)
+		{
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+			this.element = element;
+			this.combine = combine;
+		}
+
+		protected T compute()
+		{
+			if (end - start <= grain)
+			{
+				T answer = element.apply(start);
+				for (int i = start + 1; i < end; i++)
+				{
+					answer = combine.apply(answer, element.apply(i));
+				}
+				return answer;
+			}
+			int middle = (start + end) >>> 1;
+			Reduction<T> left = new Reduction<T>(start, middle, grain, element, combine);
+			Reduction<T> right = new Reduction<T>(middle, end, grain, element, combine);
+			left.fork();
+			T r = right.compute();
+			return combine.apply(left.join(), r);
+		}
+	}
+
+	private static final class Range extends RecursiveAction
+	{
+		private static final long serialVersionUID = 4381195612394870342L;
+
+		private final int start;
+		private final int end;
+		private final int grain;
+		private final IntConsumer body;
+
+		Range(int start, int end, int grain, IntConsumer body)
+		{
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+			this.body = body;
+		}
+
+		protected void compute()
+		{
+			if (end - start <= grain)
+			{
+				for (int i = start; i < end; i++)
+				{
+					body.accept(i);
+				}
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new Range(start, middle, grain, body), new Range(middle, end, grain, body));
+		}
+	}
+}
@@ -8,8 +8,11 @@ import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.AlgorithmParameterSpec;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -19,7 +22,9 @@ import javax.crypto.NoSuchPaddingException;
 import javax.crypto.ShortBufferException;
 
 import security.paillier.PaillierPublicKey;
+import security.generic.MultiExponentiation;
 import security.generic.NTL;
+import security.generic.Parallel;
 import security.paillier.PaillierPrivateKey;
 
 public final class PaillierCipher extends CipherSpi
@@ -387,6 +392,7 @@ public final class PaillierCipher extends CipherSpi
 	//-----------------------BigInteger Paillier----------------------------------------------
 
     // Compute ciphertext = (mn+1)r^n (mod n^2) in two stages: (mn+1) and (r^n).
+    // With a DJN key, r^n is replaced by hs^a for a short random a.
     public static BigInteger encrypt(BigInteger plaintext, PaillierPublicKey pk) 
     {
 		if (plaintext.signum() == -1)
@@ -400,11 +406,8 @@ public final class PaillierCipher extends CipherSpi
 					+ " (plaintext >= N) value of Plain Text is: " + plaintext);
 		}
 		
-        //BigInteger randomness = new BigInteger(pk.keysize, rnd);
-        BigInteger randomness = NTL.RandomBnd(pk.n);
-        //BigInteger tmp1 = plaintext.multiply(pk.n).add(BigInteger.ONE).mod(pk.modulus);
-        BigInteger tmp1 = pk.g.modPow(plaintext, pk.modulus);
-        BigInteger tmp2 = randomness.modPow(pk.n, pk.modulus);
+        BigInteger tmp1 = g_pow(plaintext, pk);
+        BigInteger tmp2 = randomizer(pk);
         BigInteger ciphertext = NTL.POSMOD(tmp1.multiply(tmp2), pk.modulus);
         return ciphertext;
     }
@@ -414,6 +417,43 @@ public final class PaillierCipher extends CipherSpi
     	return PaillierCipher.encrypt(BigInteger.valueOf(plaintext), pk);
     }
 
+    // Encrypt every value in parallel, the i-th ciphertext encrypts plaintext[i]
+    public static BigInteger [] encryptAll(BigInteger [] plaintext, PaillierPublicKey pk)
+    {
+    	return encryptAll(plaintext, pk, Parallel.defaultPool());
+    }
+    
+    public static BigInteger [] encryptAll(final BigInteger [] plaintext, final PaillierPublicKey pk, ForkJoinPool pool)
+    {
+    	final BigInteger [] ciphertext = new BigInteger[plaintext.length];
+    	Parallel.forEach(pool, plaintext.length, new IntConsumer()
+    	{
+    		public void accept(int i)
+    		{
+    			ciphertext[i] = encrypt(plaintext[i], pk);
+    		}
+    	});
+    	return ciphertext;
+    }
+    
+    public static BigInteger [] encryptAll(long [] plaintext, PaillierPublicKey pk)
+    {
+    	return encryptAll(plaintext, pk, Parallel.defaultPool());
+    }
+    
+    public static BigInteger [] encryptAll(final long [] plaintext, final PaillierPublicKey pk, ForkJoinPool pool)
+    {
+    	final BigInteger [] ciphertext = new BigInteger[plaintext.length];
+    	Parallel.forEach(pool, plaintext.length, new IntConsumer()
+    	{
+    		public void accept(int i)
+    		{
+    			ciphertext[i] = encrypt(plaintext[i], pk);
+    		}
+    	});
+    	return ciphertext;
+    }
+    
     // Compute plaintext = L(c^(lambda) mod n^2) * mu mod n
     public static BigInteger decrypt(BigInteger ciphertext, PaillierPrivateKey sk)
     {
@@ -427,10 +467,47 @@ public final class PaillierCipher extends CipherSpi
 			throw new IllegalArgumentException("decryption Invalid Parameter : the cipher text is not in Zn,"
 					+ " value of cipher text is: (c > n): " + ciphertext);
 		}
+		if (sk.hasCRT())
+		{
+			return decrypt_crt(ciphertext, sk);
+		}
         //BigInteger plaintext = L(ciphertext.modPow(sk.lambda, sk.modulus), sk.n).multiply(sk.mu).mod(sk.n);
         BigInteger plaintext = L(ciphertext.modPow(sk.lambda, sk.modulus), sk.n).multiply(sk.rho).mod(sk.n);
         return plaintext;
     }
+    
+    // Decrypt using the Chinese Remainder Theorem, exponents and moduli are half-size
+    // m_p = L_p(c^{p-1} mod p^2) * hp mod p
+    // m_q = L_q(c^{q-1} mod q^2) * hq mod q
+    // m = m_q + q * ((m_p - m_q) * q^{-1} mod p)
+    private static BigInteger decrypt_crt(BigInteger ciphertext, PaillierPrivateKey sk)
+    {
+    	BigInteger mp = L(ciphertext.mod(sk.psquared).modPow(sk.p.subtract(BigInteger.ONE), sk.psquared), sk.p)
+    			.multiply(sk.hp).mod(sk.p);
+    	BigInteger mq = L(ciphertext.mod(sk.qsquared).modPow(sk.q.subtract(BigInteger.ONE), sk.qsquared), sk.q)
+    			.multiply(sk.hq).mod(sk.q);
+    	BigInteger u = mp.subtract(mq).multiply(sk.qInverse).mod(sk.p);
+    	return mq.add(u.multiply(sk.q));
+    }
+
+    // Decrypt every value in parallel, the i-th plaintext decrypts ciphertext[i]
+    public static BigInteger [] decryptAll(BigInteger [] ciphertext, PaillierPrivateKey sk)
+    {
+    	return decryptAll(ciphertext, sk, Parallel.defaultPool());
+    }
+    
+    public static BigInteger [] decryptAll(final BigInteger [] ciphertext, final PaillierPrivateKey sk, ForkJoinPool pool)
+    {
+    	final BigInteger [] plaintext = new BigInteger[ciphertext.length];
+    	Parallel.forEach(pool, ciphertext.length, new IntConsumer()
+    	{
+    		public void accept(int i)
+    		{
+    			plaintext[i] = decrypt(ciphertext[i], sk);
+    		}
+    	});
+    	return plaintext;
+    }
 
     // On input two encrypted values, returns an encryption of the sum of the
     // values
@@ -442,19 +519,45 @@ public final class PaillierCipher extends CipherSpi
     
     public static BigInteger add_plaintext(BigInteger ciphertext, BigInteger plaintext, PaillierPublicKey pk)
     {
-        BigInteger new_ciphertext = ciphertext.multiply(pk.g.modPow(plaintext, pk.modulus)).mod(pk.modulus);
+        BigInteger new_ciphertext = ciphertext.multiply(g_pow(plaintext, pk)).mod(pk.modulus);
         return new_ciphertext;
     }
     
     public static BigInteger add_plaintext(BigInteger ciphertext, long plaintext, PaillierPublicKey pk)
     {
-        BigInteger new_ciphertext = ciphertext.multiply(pk.g.modPow(BigInteger.valueOf(plaintext), pk.modulus)).mod(pk.modulus);
-        return new_ciphertext;
+        return add_plaintext(ciphertext, BigInteger.valueOf(plaintext), pk);
+    }
+    
+    // Get r^n (mod n^2) from the key's pool, compute it inline if the pool is empty
+    protected static BigInteger randomizer(PaillierPublicKey pk)
+    {
+    	PaillierRandomizerPool pool = pk.randomizers;
+    	if (pool != null)
+    	{
+    		BigInteger r = pool.take();
+    		if (r != null)
+    		{
+    			return r;
+    		}
+    	}
+        //BigInteger randomness = new BigInteger(pk.keysize, rnd);
+    	return PaillierRandomizerPool.compute(pk);
+    }
+    
+    // Compute g^m (mod n^2), if g = n + 1 then g^m = 1 + mn (mod n^2)
+    protected static BigInteger g_pow(BigInteger plaintext, PaillierPublicKey pk)
+    {
+    	if (pk.simple_g)
+    	{
+    		return plaintext.multiply(pk.n).add(BigInteger.ONE).mod(pk.modulus);
+    	}
+    	return pk.g.modPow(plaintext, pk.modulus);
     }
     
     public static BigInteger subtract(BigInteger ciphertext1, BigInteger ciphertext2, PaillierPublicKey pk)
     {
-    	BigInteger neg_ciphertext2 = PaillierCipher.multiply(ciphertext2, pk.n.subtract(BigInteger.ONE), pk);
+    	// [[-x]] = [[x]]^{-1}, cheaper than [[x]]^{n - 1}
+    	BigInteger neg_ciphertext2 = ciphertext2.modInverse(pk.modulus);
 		BigInteger ciphertext = ciphertext1.multiply(neg_ciphertext2).mod(pk.modulus);
 		return ciphertext;
     }
@@ -478,62 +581,66 @@ public final class PaillierCipher extends CipherSpi
         return u.subtract(BigInteger.ONE).divide(n);
     }
     
+	/*
+	 * The sums below multiply the ciphertexts over a balanced tree split across
+	 * worker threads. Nothing is encrypted as a starting value, an empty sum
+	 * returns 1, which is the trivial encryption of 0.
+	 */
 	public static BigInteger sum(BigInteger [] values, PaillierPublicKey pk)
 	{
-		BigInteger sum = PaillierCipher.encrypt(BigInteger.ZERO, pk);
-		for (int i = 0; i < values.length; i++)
-		{
-			sum = PaillierCipher.add(sum, values[i], pk);
-		}
-		return sum;
+		return sum(values, pk, values.length, Parallel.defaultPool());
 	}
 	
 	public static BigInteger sum(BigInteger [] values, PaillierPublicKey pk, int limit)
 	{
-		if (limit > values.length)
-		{
-			return sum(values, pk);
-		}
-		BigInteger sum = PaillierCipher.encrypt(BigInteger.ZERO, pk);
-		if (limit <= 0)
+		return sum(values, pk, limit, Parallel.defaultPool());
+	}
+	
+	public static BigInteger sum(final BigInteger [] values, final PaillierPublicKey pk, int limit, ForkJoinPool pool)
+	{
+		BigInteger sum = Parallel.reduce(pool, Math.min(limit, values.length), new IntFunction<BigInteger>()
 		{
-			return sum;
-		}
-		for (int i = 0; i < limit; i++)
+			public BigInteger apply(int i)
+			{
+				return values[i];
+			}
+		}, adder(pk));
+		if (sum == null)
 		{
-			sum = PaillierCipher.add(sum, values[i], pk);
+			return BigInteger.ONE;
 		}
 		return sum;
 	}
 	
-	public static BigInteger summation(ArrayList<BigInteger> values, PaillierPublicKey pk)
+	public static BigInteger summation(List<BigInteger> values, PaillierPublicKey pk)
 	{
-		BigInteger sum = PaillierCipher.encrypt(BigInteger.ZERO, pk);
-		for (int i = 0; i < values.size(); i++)
-		{
-			sum = PaillierCipher.add(sum, values.get(i), pk);
-		}
-		return sum;
+		return summation(values, pk, values.size(), Parallel.defaultPool());
 	}
 	
-	public static BigInteger summation(ArrayList<BigInteger> values, PaillierPublicKey pk, int limit)
+	public static BigInteger summation(List<BigInteger> values, PaillierPublicKey pk, int limit)
 	{
-		if (limit > values.size())
-		{
-			return summation(values, pk);
-		}
-		BigInteger sum = PaillierCipher.encrypt(BigInteger.ZERO, pk);
-		if (limit <= 0)
-		{
-			return sum;
-		}
-		for (int i = 0; i < limit; i++)
+		return summation(values, pk, limit, Parallel.defaultPool());
+	}
+	
+	public static BigInteger summation(List<BigInteger> values, PaillierPublicKey pk, int limit, ForkJoinPool pool)
+	{
+		// Copy once, so linked lists don't pay for get(i)
+		BigInteger [] array = values.subList(0, Math.max(0, Math.min(limit, values.size()))).toArray(new BigInteger[0]);
+		return sum(array, pk, array.length, pool);
+	}
+	
+	private static BinaryOperator<BigInteger> adder(final PaillierPublicKey pk)
+	{
+		return new BinaryOperator<BigInteger>()
 		{
-			sum = PaillierCipher.add(sum, values.get(i), pk);
-		}
-		return sum;
+			public BigInteger apply(BigInteger ciphertext1, BigInteger ciphertext2)
+			{
+				return add(ciphertext1, ciphertext2, pk);
+			}
+		};
 	}
 	
+	// Encryption of sum(plain[i] * x_i), computed as one multi-exponentiation prod cipher[i]^{plain[i]}
 	public static BigInteger sum_product (PaillierPublicKey pk, List<BigInteger> cipher, List<Long> plain)
 	{
 		if(cipher.size() != plain.size())
@@ -541,12 +648,14 @@ public final class PaillierCipher extends CipherSpi
 			throw new IllegalArgumentException("Arrays are NOT the same size!");
 		}
 		
-		BigInteger [] product_vector = new BigInteger[cipher.size()];
-		for (int i = 0; i < product_vector.length; i++)
+		BigInteger [] bases = cipher.toArray(new BigInteger[cipher.size()]);
+		long [] exponents = new long[plain.size()];
+		int i = 0;
+		for (Long scalar : plain)
 		{
-			product_vector[i] = PaillierCipher.multiply(cipher.get(i), plain.get(i), pk);
+			exponents[i++] = scalar;
 		}
-		return sum(product_vector, pk);
+		return MultiExponentiation.multiexp(bases, exponents, pk.modulus);
 	}
 	
 	public static BigInteger sum_product (PaillierPublicKey pk, BigInteger[] cipher, Long[] plain)
@@ -556,13 +665,14 @@ public final class PaillierCipher extends CipherSpi
 			throw new IllegalArgumentException("Arrays are NOT the same size!");
 		}
 		
-		BigInteger [] product_vector = new BigInteger[cipher.length];
-		for (int i = 0; i < product_vector.length; i++)
+		long [] exponents = new long[plain.length];
+		for (int i = 0; i < exponents.length; i++)
 		{
-			product_vector[i] = PaillierCipher.multiply(cipher[i], plain[i], pk);
+			exponents[i] = plain[i];
 		}
-		return sum(product_vector, pk);
+		return MultiExponentiation.multiexp(cipher, exponents, pk.modulus);
 	}
+	
 	/*
 	 * Please note: Divide will only work correctly on perfect divisor
 	 * 2|20, it will work.
@@ -577,7 +687,7 @@ public final class PaillierCipher extends CipherSpi
 	
 	public static BigInteger divide(BigInteger ciphertext, BigInteger divisor, PaillierPublicKey pk)
 	{
-		return multiply(ciphertext, divisor.modInverse(pk.modulus), pk);
+		return multiply(ciphertext, pk.montgomery().modInverse(divisor), pk);
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package security.paillier;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.math.BigInteger;
+
+/*
+ * Immutable Paillier ciphertext bound to its public key.
+ *
+ * The value is held in Montgomery form (cR mod n^2), so chains of homomorphic
+ * additions and subtractions only pay for REDC instead of a full mod n^2 each step.
+ * It is converted back to a normal ciphertext by toBigInteger(), decrypt(),
+ * and when serialized, where it is written as a plain BigInteger ciphertext
+ * so the alice/bob wire format does not change.
+ *
+ * Deferred obfuscation: encrypt_unobfuscated() skips the r^n factor and only
+ * computes g^m. The result of an operation is obfuscated if any input was.
+ * obfuscate() multiplies in r^n once, and serialization always obfuscates first,
+ * so intermediate values of a long pipeline never pay for r^n.
+ * Only randomness added by this process counts: a ciphertext from the other party
+ * is wrapped as unobfuscated, because that party knows its r^n and could strip it
+ * from anything we send back.
+ */
+public final class PaillierCiphertext implements Serializable
+{
+	private static final long serialVersionUID = 2650462335361651532L;
+
+	private final transient PaillierPublicKey pk;
+	private final transient BigInteger value;
+	// False if no r^n factor of our own has been multiplied in yet
+	private final transient boolean obfuscated;
+
+	private PaillierCiphertext(PaillierPublicKey pk, BigInteger value, boolean obfuscated)
+	{
+		this.pk = pk;
+		this.value = value;
+		this.obfuscated = obfuscated;
+	}
+
+	// Wrap an existing ciphertext c in Z_{n^2}, e.g. received from the other party.
+	// Its randomness may be known to the sender, so it is re-obfuscated before it leaves the process.
+	public static PaillierCiphertext valueOf(BigInteger ciphertext, PaillierPublicKey pk)
+	{
+		if (ciphertext.signum() == -1 || ciphertext.compareTo(pk.modulus) >= 0)
+		{
+			throw new IllegalArgumentException("Ciphertext is not in Z_{n^2}: " + ciphertext);
+		}
+		return new PaillierCiphertext(pk, pk.montgomery().to(ciphertext), false);
+	}
+
+	public static PaillierCiphertext encrypt(BigInteger plaintext, PaillierPublicKey pk)
+	{
+		return new PaillierCiphertext(pk, pk.montgomery().to(PaillierCipher.encrypt(plaintext, pk)), true);
+	}
+
+	public static PaillierCiphertext encrypt(long plaintext, PaillierPublicKey pk)
+	{
+		return encrypt(BigInteger.valueOf(plaintext), pk);
+	}
+
+	// g^m (mod n^2) without randomness, i.e. 1 + mn with g = n + 1. Call obfuscate() before it leaves the process.
+	public static PaillierCiphertext encrypt_unobfuscated(BigInteger plaintext, PaillierPublicKey pk)
+	{
+		if (plaintext.signum() == -1 || plaintext.compareTo(pk.n) >= 0)
+		{
+			throw new IllegalArgumentException("Encryption Invalid Parameter: the plaintext is not in [0, N): " + plaintext);
+		}
+		return new PaillierCiphertext(pk, pk.montgomery().to(PaillierCipher.g_pow(plaintext, pk)), false);
+	}
+
+	public static PaillierCiphertext encrypt_unobfuscated(long plaintext, PaillierPublicKey pk)
+	{
+		return encrypt_unobfuscated(BigInteger.valueOf(plaintext), pk);
+	}
+
+	public boolean isObfuscated()
+	{
+		return obfuscated;
+	}
+
+	// Multiply in a fresh r^n (from the key's pool if one is bound), only if not done already
+	public PaillierCiphertext obfuscate()
+	{
+		if (obfuscated)
+		{
+			return this;
+		}
+		PaillierMontgomery mont = pk.montgomery();
+		return new PaillierCiphertext(pk, mont.multiply(value, mont.to(PaillierCipher.randomizer(pk))), true);
+	}
+
+	public PaillierPublicKey getPublicKey()
+	{
+		return pk;
+	}
+
+	// [[x + y]] = [[x]] * [[y]]
+	public PaillierCiphertext add(PaillierCiphertext other)
+	{
+		check(other);
+		return new PaillierCiphertext(pk, pk.montgomery().multiply(value, other.value), obfuscated || other.obfuscated);
+	}
+
+	// [[x + m]] = [[x]] * g^m
+	public PaillierCiphertext add_plaintext(BigInteger plaintext)
+	{
+		PaillierMontgomery mont = pk.montgomery();
+		return new PaillierCiphertext(pk, mont.multiply(value, mont.to(PaillierCipher.g_pow(plaintext, pk))), obfuscated);
+	}
+
+	public PaillierCiphertext add_plaintext(long plaintext)
+	{
+		return add_plaintext(BigInteger.valueOf(plaintext));
+	}
+
+	// [[x - y]] = [[x]] * [[y]]^{-1}
+	public PaillierCiphertext subtract(PaillierCiphertext other)
+	{
+		check(other);
+		PaillierMontgomery mont = pk.montgomery();
+		return new PaillierCiphertext(pk, mont.multiply(value, mont.inverse(other.value)), obfuscated || other.obfuscated);
+	}
+
+	// [[cx]] = [[x]]^c, BigInteger.modPow already runs its own Montgomery ladder
+	public PaillierCiphertext multiply(BigInteger scalar)
+	{
+		PaillierMontgomery mont = pk.montgomery();
+		return new PaillierCiphertext(pk, mont.to(mont.from(value).modPow(scalar, pk.modulus)), obfuscated);
+	}
+
+	public PaillierCiphertext multiply(long scalar)
+	{
+		return multiply(BigInteger.valueOf(scalar));
+	}
+
+	// Same restriction as PaillierCipher.divide, only exact divisors give the right answer
+	public PaillierCiphertext divide(BigInteger divisor)
+	{
+		return multiply(pk.montgomery().modInverse(divisor));
+	}
+
+	public PaillierCiphertext divide(long divisor)
+	{
+		return divide(BigInteger.valueOf(divisor));
+	}
+
+	// The normal ciphertext c in Z_{n^2}, as used by PaillierCipher. Does NOT obfuscate.
+	public BigInteger toBigInteger()
+	{
+		return pk.montgomery().from(value);
+	}
+
+	public BigInteger decrypt(PaillierPrivateKey sk)
+	{
+		return PaillierCipher.decrypt(toBigInteger(), sk);
+	}
+
+	private void check(PaillierCiphertext other)
+	{
+		if (other.pk != pk && !other.pk.modulus.equals(pk.modulus))
+		{
+			throw new IllegalArgumentException("Ciphertexts are under different Paillier keys!");
+		}
+	}
+
+	// Sent as a normal, obfuscated ciphertext
+	private Object writeReplace() throws ObjectStreamException
+	{
+		return obfuscate().toBigInteger();
+	}
+
+	public boolean equals(Object o)
+	{
+		if (!(o instanceof PaillierCiphertext))
+		{
+			return false;
+		}
+		if (o == this)
+		{
+			return true;
+		}
+		PaillierCiphertext c = (PaillierCiphertext) o;
+		return pk.modulus.equals(c.pk.modulus) && value.equals(c.value);
+	}
+
+	public int hashCode()
+	{
+		return value.hashCode();
+	}
+
+	public String toString()
+	{
+		return toBigInteger().toString();
+	}
+}
@@ -4,8 +4,14 @@ import java.math.BigInteger;
 import java.security.KeyPair;
 import java.security.KeyPairGeneratorSpi;
 import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
 
 import security.generic.CipherConstants;
+import security.generic.NTL;
+import security.generic.Parallel;
 
 public class PaillierKeyPairGenerator extends KeyPairGeneratorSpi implements CipherConstants
 {
@@ -14,6 +20,10 @@ public class PaillierKeyPairGenerator extends KeyPairGeneratorSpi implements Cip
 	private final static int CERTAINTY = 40;
 	private int keysize = 1024;
 	private SecureRandom rnd = null;
+	// If true, fix g = n + 1 so g^m can be computed as 1 + mn (mod n^2)
+	private boolean simple_g = false;
+	// If true, publish hs = h^n (mod n^2) for DJN short exponent encryption
+	private boolean djn = false;
 	
 	public void initialize(int keysize, SecureRandom random) 
 	{
@@ -30,6 +40,26 @@ public class PaillierKeyPairGenerator extends KeyPairGeneratorSpi implements Cip
 		}		
 		this.keysize = keysize;
 	}
+	
+	public void setSimpleG(boolean simple_g)
+	{
+		this.simple_g = simple_g;
+	}
+	
+	public boolean isSimpleG()
+	{
+		return simple_g;
+	}
+	
+	public void setDJN(boolean djn)
+	{
+		this.djn = djn;
+	}
+	
+	public boolean isDJN()
+	{
+		return djn;
+	}
 
 	public KeyPair generateKeyPair() 
 	{
@@ -40,8 +70,23 @@ public class PaillierKeyPairGenerator extends KeyPairGeneratorSpi implements Cip
 		
 		// Chooses a random prime of length k2. The probability that
 		// p is not prime is at most 2^(-k2)
-		BigInteger p = new BigInteger(keysize/2, CERTAINTY, rnd);
-		BigInteger q = new BigInteger(keysize/2, CERTAINTY, rnd);
+		// Search for q on another worker while this thread searches for p
+		final SecureRandom random = this.rnd;
+		final int bits = keysize/2;
+		Callable<BigInteger> prime = new Callable<BigInteger>()
+		{
+			public BigInteger call()
+			{
+				return new BigInteger(bits, CERTAINTY, random);
+			}
+		};
+		ForkJoinTask<BigInteger> find_q = ForkJoinPool.commonPool().submit(prime);
+		BigInteger p = new BigInteger(bits, CERTAINTY, rnd);
+		BigInteger q = find_q.join();
+		while (p.equals(q))
+		{
+			q = new BigInteger(bits, CERTAINTY, rnd);
+		}
 
 		BigInteger n = p.multiply(q); // n = pq
 		BigInteger modulus = n.multiply(n); // modulous = n^2
@@ -50,22 +95,39 @@ public class PaillierKeyPairGenerator extends KeyPairGeneratorSpi implements Cip
 		BigInteger lambda = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
 		BigInteger mu = lambda.modInverse(n);
 	
-		// For signature
-		// Build base g \in Z_{n^2} with order n
-		BigInteger g = TWO;
-		g = find_g(g, lambda, modulus, n);
-		
-		// Beware of flaw with Paillier if g^{lambda} = 1 (mod n^2)
-		while(g.modPow(lambda, modulus).equals(BigInteger.ONE))
+		BigInteger g;
+		if (simple_g)
+		{
+			// g = n + 1 always has order n, and L(g^{lambda} mod n^2) = lambda is invertible mod n
+			g = n.add(BigInteger.ONE);
+		}
+		else
 		{
-			g = find_g(g.add(BigInteger.ONE), lambda, modulus, n);
+			// For signature
+			// Build base g \in Z_{n^2} with order n
+			// Beware of flaw with Paillier if g^{lambda} = 1 (mod n^2)
+			g = find_g(TWO, lambda, modulus, n);
 		}
 		
 		BigInteger gcd = p.subtract(BigInteger.ONE).gcd(q.subtract(BigInteger.ONE));
 		BigInteger alpha = find_alpha(lambda.divide(gcd), modulus);
 		
-		PaillierPublicKey pk = new PaillierPublicKey(this.keysize, n, modulus, g);
-		PaillierPrivateKey sk = new PaillierPrivateKey(this.keysize, n, modulus, lambda, mu, g, alpha);
+		// DJN: h = -x^2 (mod n) for a random unit x, hs = h^n (mod n^2)
+		BigInteger hs = null;
+		if (djn)
+		{
+			BigInteger x;
+			do
+			{
+				x = NTL.RandomBnd(n);
+			}
+			while (x.signum() == 0 || !x.gcd(n).equals(BigInteger.ONE));
+			BigInteger h = x.multiply(x).negate().mod(n);
+			hs = h.modPow(n, modulus);
+		}
+		
+		PaillierPublicKey pk = new PaillierPublicKey(this.keysize, n, modulus, g, hs);
+		PaillierPrivateKey sk = new PaillierPrivateKey(this.keysize, n, modulus, lambda, mu, g, alpha, p, q);
 		
 		System.out.println("Completed building Paillier Key Pair!");
 		return new KeyPair(pk, sk);
@@ -87,16 +149,34 @@ public class PaillierKeyPairGenerator extends KeyPairGeneratorSpi implements Cip
 		}
 	}
 	
-	// Build generator
-	private static BigInteger find_g(BigInteger g, BigInteger lambda, BigInteger modulus, BigInteger n)
+	// Build generator: the smallest g >= start with gcd(L(g^{lambda} mod n^2), n) = 1 and g^{lambda} != 1 (mod n^2)
+	// Candidates are tested one batch at a time, a batch holds one candidate per worker
+	private static BigInteger find_g(BigInteger start, final BigInteger lambda, final BigInteger modulus, final BigInteger n)
 	{
+		ForkJoinPool pool = Parallel.defaultPool();
+		final int batch = Math.max(1, pool.getParallelism());
+		final boolean [] valid = new boolean[batch];
+		BigInteger g = start;
 		while(true)
 		{
-			if(PaillierCipher.L(g.modPow(lambda, modulus), n).gcd(n).equals(BigInteger.ONE))
+			final BigInteger base = g;
+			Parallel.forEach(pool, batch, new IntConsumer()
+			{
+				public void accept(int i)
+				{
+					BigInteger candidate = base.add(BigInteger.valueOf(i)).modPow(lambda, modulus);
+					valid[i] = !candidate.equals(BigInteger.ONE)
+							&& PaillierCipher.L(candidate, n).gcd(n).equals(BigInteger.ONE);
+				}
+			});
+			for (int i = 0; i < batch; i++)
 			{
-				return g;		
+				if (valid[i])
+				{
+					return base.add(BigInteger.valueOf(i));
+				}
 			}
-			g = g.add(BigInteger.ONE);
+			g = g.add(BigInteger.valueOf(batch));
 		}
 	}
 }
@@ -0,0 +1,187 @@
+package security.paillier;
+
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Pool of pre-generated Paillier key pairs.
+ * A background thread keeps the pool full, so a new session can take
+ * a ready key pair instead of waiting for prime generation.
+ * Each key pair is handed out only once.
+ *
+ * The producer only starts a key pair when there is room for it, and take() waits
+ * for the one in progress instead of generating a second one on the caller's thread.
+ * After shutdown() no new key pair is started, but the pairs already in the pool
+ * and the one in progress can still be taken.
+ */
+public final class PaillierKeyPairPool
+{
+	public final static int DEFAULT_CAPACITY = 2;
+
+	private final PaillierKeyPairGenerator generator;
+	private final int capacity;
+	private final ArrayDeque<KeyPair> pool;
+	private final Thread producer;
+
+	// Guards pool, running and generating
+	private final Object lock = new Object();
+	private boolean running = true;
+	private boolean generating = false;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public PaillierKeyPairPool(int keysize)
+	{
+		this(keysize, true, DEFAULT_CAPACITY);
+	}
+
+	public PaillierKeyPairPool(int keysize, boolean simple_g, int capacity)
+	{
+		this(keysize, simple_g, false, capacity);
+	}
+
+	// djn - generate keys with the short-exponent (DJN) randomizer base, see PaillierKeyPairGenerator.setDJN
+	public PaillierKeyPairPool(int keysize, boolean simple_g, boolean djn, int capacity)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("Pool capacity must be positive!");
+		}
+		this.generator = new PaillierKeyPairGenerator();
+		this.generator.initialize(keysize, new SecureRandom());
+		this.generator.setSimpleG(simple_g);
+		this.generator.setDJN(djn);
+		this.capacity = capacity;
+		this.pool = new ArrayDeque<KeyPair>(capacity);
+		this.producer = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				produce();
+			}
+		}, "paillier-keypair");
+		this.producer.setDaemon(true);
+		this.producer.start();
+	}
+
+	private void produce()
+	{
+		while (true)
+		{
+			synchronized (lock)
+			{
+				while (running && pool.size() >= capacity)
+				{
+					try
+					{
+						lock.wait();
+					}
+					catch (InterruptedException e)
+					{
+						return;
+					}
+				}
+				if (!running)
+				{
+					return;
+				}
+				generating = true;
+			}
+			KeyPair pair = null;
+			try
+			{
+				pair = generator.generateKeyPair();
+			}
+			finally
+			{
+				synchronized (lock)
+				{
+					if (pair != null)
+					{
+						pool.add(pair);
+					}
+					else
+					{
+						// Generation failed, take() falls back to generating on its own thread
+						running = false;
+					}
+					generating = false;
+					lock.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Take a ready key pair, waiting for the one being generated if the pool is empty.
+	 * Only generates on this thread if the pool is shut down and nothing is left.
+	 */
+	public KeyPair take()
+	{
+		synchronized (lock)
+		{
+			boolean waited = false;
+			while (pool.isEmpty() && (running || generating))
+			{
+				waited = true;
+				try
+				{
+					lock.wait();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			KeyPair pair = pool.poll();
+			if (pair != null)
+			{
+				if (waited)
+				{
+					misses.incrementAndGet();
+				}
+				else
+				{
+					hits.incrementAndGet();
+				}
+				// Room for the producer again
+				lock.notifyAll();
+				return pair;
+			}
+		}
+		misses.incrementAndGet();
+		return generator.generateKeyPair();
+	}
+
+	// Start no new key pairs. A key pair already being generated can not be stopped, it still finishes.
+	public void shutdown()
+	{
+		synchronized (lock)
+		{
+			running = false;
+			lock.notifyAll();
+		}
+	}
+
+	public int size()
+	{
+		synchronized (lock)
+		{
+			return pool.size();
+		}
+	}
+
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+}
@@ -0,0 +1,94 @@
+package security.paillier;
+
+import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Montgomery arithmetic modulo n^2 for one Paillier public key.
+ * With R = 2^k > n^2, a value x is kept as xR (mod n^2), and the product of
+ * two such values is reduced with REDC, which only needs masks and shifts
+ * instead of a full division by n^2.
+ *
+ * Built lazily once per key, see PaillierPublicKey.montgomery().
+ */
+final class PaillierMontgomery
+{
+	private final BigInteger modulus;
+	private final int k;
+	private final BigInteger mask;
+	// -modulus^{-1} (mod R)
+	private final BigInteger n_prime;
+	// R^2 and R^3 (mod n^2), to convert in and to invert
+	private final BigInteger r_squared;
+	private final BigInteger r_cubed;
+	// Montgomery form of 1
+	protected final BigInteger one;
+
+	// divisor -> divisor^{-1} (mod n^2), used by divide
+	private final static int MAX_CACHED_INVERSES = 256;
+	private final ConcurrentHashMap<BigInteger, BigInteger> inverses = new ConcurrentHashMap<BigInteger, BigInteger>();
+
+	PaillierMontgomery(BigInteger modulus)
+	{
+		this.modulus = modulus;
+		// Round up to whole 64-bit words so the masks line up with BigInteger's limbs
+		this.k = ((modulus.bitLength() + 63) / 64) * 64;
+		BigInteger R = BigInteger.ONE.shiftLeft(k);
+		this.mask = R.subtract(BigInteger.ONE);
+		this.n_prime = modulus.modInverse(R).negate().mod(R);
+		this.one = R.mod(modulus);
+		this.r_squared = one.multiply(one).mod(modulus);
+		this.r_cubed = r_squared.multiply(one).mod(modulus);
+	}
+
+	// REDC(T) = T R^{-1} (mod n^2) for 0 <= T < n^2 R
+	protected BigInteger reduce(BigInteger T)
+	{
+		BigInteger m = T.and(mask).multiply(n_prime).and(mask);
+		BigInteger u = T.add(m.multiply(modulus)).shiftRight(k);
+		if (u.compareTo(modulus) >= 0)
+		{
+			u = u.subtract(modulus);
+		}
+		return u;
+	}
+
+	// aR * bR -> abR
+	protected BigInteger multiply(BigInteger a, BigInteger b)
+	{
+		return reduce(a.multiply(b));
+	}
+
+	// x -> xR
+	protected BigInteger to(BigInteger x)
+	{
+		return reduce(x.mod(modulus).multiply(r_squared));
+	}
+
+	// xR -> x
+	protected BigInteger from(BigInteger x)
+	{
+		return reduce(x);
+	}
+
+	// xR -> x^{-1}R, (xR)^{-1} = x^{-1}R^{-1}, and REDC(x^{-1}R^{-1} * R^3) = x^{-1}R
+	protected BigInteger inverse(BigInteger x)
+	{
+		return reduce(x.modInverse(modulus).multiply(r_cubed));
+	}
+
+	// Cached divisor^{-1} (mod n^2), in normal form
+	protected BigInteger modInverse(BigInteger divisor)
+	{
+		BigInteger inverse = inverses.get(divisor);
+		if (inverse == null)
+		{
+			inverse = divisor.modInverse(modulus);
+			if (inverses.size() < MAX_CACHED_INVERSES)
+			{
+				inverses.putIfAbsent(divisor, inverse);
+			}
+		}
+		return inverse;
+	}
+}
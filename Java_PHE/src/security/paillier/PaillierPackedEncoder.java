@@ -0,0 +1,187 @@
+package security.paillier;
+
+import java.math.BigInteger;
+
+/*
+ * Packs several small non-negative values into one Paillier plaintext (SIMD slots).
+ *
+ * Each slot is value_bits + headroom_bits wide, slot j holds v_j * 2^{j * width}.
+ * Adding two packed ciphertexts adds every slot at once, and the headroom
+ * keeps the carries inside the slot for up to 2^headroom_bits additions
+ * (or a multiplication by a scalar below 2^headroom_bits).
+ *
+ * For example with n = 1024 bits, 16-bit values and 16 bits of headroom,
+ * one ciphertext carries 31 values instead of 1.
+ */
+public final class PaillierPackedEncoder
+{
+	private final PaillierPublicKey pk;
+	private final int value_bits;
+	private final int headroom_bits;
+	private final int slot_bits;
+	private final int slots;
+	private final BigInteger slot_mask;
+
+	public PaillierPackedEncoder(PaillierPublicKey pk, int value_bits, int headroom_bits)
+	{
+		if (value_bits <= 0 || headroom_bits < 0 || value_bits + headroom_bits > 62)
+		{
+			throw new IllegalArgumentException("Slot width must be in [1, 62] bits!");
+		}
+		this.pk = pk;
+		this.value_bits = value_bits;
+		this.headroom_bits = headroom_bits;
+		this.slot_bits = value_bits + headroom_bits;
+		// Stay strictly below n, so a full plaintext never wraps
+		this.slots = (pk.getN().bitLength() - 1) / slot_bits;
+		if (this.slots < 1)
+		{
+			throw new IllegalArgumentException("Slot width is larger than the plaintext space!");
+		}
+		this.slot_mask = BigInteger.ONE.shiftLeft(slot_bits).subtract(BigInteger.ONE);
+	}
+
+	// Number of values per plaintext
+	public int getSlots()
+	{
+		return slots;
+	}
+
+	public int getSlotBits()
+	{
+		return slot_bits;
+	}
+
+	// Number of packed ciphertexts that can be added before a slot may overflow
+	public long getMaxAdditions()
+	{
+		return 1L << headroom_bits;
+	}
+
+	// Number of plaintexts needed for count values
+	public int packedLength(int count)
+	{
+		return (count + slots - 1) / slots;
+	}
+
+	//-----------------------Plaintext encoding----------------------------------------------
+
+	public BigInteger [] encode(long [] values)
+	{
+		BigInteger [] packed = new BigInteger[packedLength(values.length)];
+		for (int p = 0; p < packed.length; p++)
+		{
+			BigInteger plaintext = BigInteger.ZERO;
+			int end = Math.min(values.length, (p + 1) * slots);
+			for (int i = end - 1; i >= p * slots; i--)
+			{
+				if (values[i] < 0 || values[i] >= (1L << value_bits))
+				{
+					throw new IllegalArgumentException("Value does not fit in " + value_bits + " bits: " + values[i]);
+				}
+				plaintext = plaintext.shiftLeft(slot_bits).add(BigInteger.valueOf(values[i]));
+			}
+			packed[p] = plaintext;
+		}
+		return packed;
+	}
+
+	public BigInteger [] encode(BigInteger [] values)
+	{
+		long [] v = new long[values.length];
+		for (int i = 0; i < v.length; i++)
+		{
+			if (values[i].bitLength() > value_bits)
+			{
+				throw new IllegalArgumentException("Value does not fit in " + value_bits + " bits: " + values[i]);
+			}
+			v[i] = values[i].longValue();
+		}
+		return encode(v);
+	}
+
+	// Unpack the first count slots
+	public long [] decode(BigInteger [] packed, int count)
+	{
+		if (count > packed.length * slots)
+		{
+			throw new IllegalArgumentException("Only " + packed.length * slots + " slots available!");
+		}
+		long [] values = new long[count];
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = slot(packed[i / slots], i % slots);
+		}
+		return values;
+	}
+
+	// Value of slot j of a packed plaintext
+	public long slot(BigInteger packed, int j)
+	{
+		return packed.shiftRight(j * slot_bits).and(slot_mask).longValue();
+	}
+
+	// Sum of all slots of a packed plaintext
+	public BigInteger total(BigInteger packed)
+	{
+		BigInteger total = BigInteger.ZERO;
+		for (int j = 0; j < slots; j++)
+		{
+			total = total.add(BigInteger.valueOf(slot(packed, j)));
+		}
+		return total;
+	}
+
+	//-----------------------Encrypted slots----------------------------------------------
+
+	public BigInteger [] encrypt(long [] values)
+	{
+		return PaillierCipher.encryptAll(encode(values), pk);
+	}
+
+	public BigInteger [] encrypt(BigInteger [] values)
+	{
+		return PaillierCipher.encryptAll(encode(values), pk);
+	}
+
+	public long [] decrypt(BigInteger [] ciphertext, PaillierPrivateKey sk, int count)
+	{
+		return decode(PaillierCipher.decryptAll(ciphertext, sk), count);
+	}
+
+	// Slot-wise [[a_j + b_j]]
+	public BigInteger add(BigInteger ciphertext1, BigInteger ciphertext2)
+	{
+		return PaillierCipher.add(ciphertext1, ciphertext2, pk);
+	}
+
+	// Slot-wise sum of packed ciphertexts, at most getMaxAdditions() of them
+	public BigInteger sum(BigInteger [] ciphertext)
+	{
+		if (ciphertext.length > getMaxAdditions())
+		{
+			throw new IllegalArgumentException("Summing " + ciphertext.length + " ciphertexts overflows "
+					+ headroom_bits + " bits of headroom!");
+		}
+		return PaillierCipher.sum(ciphertext, pk);
+	}
+
+	// Slot-wise [[c * a_j]], c must fit in the headroom
+	public BigInteger multiply(BigInteger ciphertext, long scalar)
+	{
+		if (scalar < 0 || scalar >= getMaxAdditions())
+		{
+			throw new IllegalArgumentException("Scalar must be in [0, 2^" + headroom_bits + "): " + scalar);
+		}
+		return PaillierCipher.multiply(ciphertext, scalar, pk);
+	}
+
+	/**
+	 * Sum of every value packed in the ciphertexts, e.g. a column total:
+	 * one slot-wise homomorphic sum, one decryption, then k plaintext additions.
+	 */
+	public BigInteger total(BigInteger [] ciphertext, PaillierPrivateKey sk)
+	{
+		return total(PaillierCipher.decrypt(sum(ciphertext), sk));
+	}
+}
@@ -51,8 +51,26 @@ public final class PaillierPrivateKey implements Serializable, PaillierKey, Priv
 	protected final BigInteger rho;
 	protected final BigInteger alpha;
 	
+	// Prime factors of n, kept for CRT decryption (null if not available)
+	protected final BigInteger p;
+	protected final BigInteger q;
+	protected final BigInteger psquared;
+	protected final BigInteger qsquared;
+	// hp = L_p(g^{p-1} mod p^2)^{-1} mod p, hq = L_q(g^{q-1} mod q^2)^{-1} mod q
+	protected final BigInteger hp;
+	protected final BigInteger hq;
+	// q^{-1} mod p, used to recombine m_p and m_q
+	protected final BigInteger qInverse;
+	
 	public PaillierPrivateKey(int key_size, BigInteger n, BigInteger mod, 
 			BigInteger lambda, BigInteger mu, BigInteger g, BigInteger alpha)
+	{
+		this(key_size, n, mod, lambda, mu, g, alpha, null, null);
+	}
+	
+	public PaillierPrivateKey(int key_size, BigInteger n, BigInteger mod, 
+			BigInteger lambda, BigInteger mu, BigInteger g, BigInteger alpha,
+			BigInteger p, BigInteger q)
 	{
 		this.key_size = key_size;
 		this.n = n;
@@ -61,7 +79,63 @@ public final class PaillierPrivateKey implements Serializable, PaillierKey, Priv
 		this.mu = mu;
 		this.g = g;
 		this.alpha = alpha;
-		this.rho = PaillierCipher.L(this.g.modPow(this.lambda, this.modulus), this.n).modInverse(this.modulus);
+		
+		if (p != null && q != null)
+		{
+			if (!p.multiply(q).equals(n))
+			{
+				throw new IllegalArgumentException("p * q does not equal n!");
+			}
+			this.p = p;
+			this.q = q;
+			this.psquared = p.multiply(p);
+			this.qsquared = q.multiply(q);
+			this.hp = h(this.g, p, this.psquared);
+			this.hq = h(this.g, q, this.qsquared);
+			this.qInverse = q.modInverse(p);
+		}
+		else
+		{
+			this.p = null;
+			this.q = null;
+			this.psquared = null;
+			this.qsquared = null;
+			this.hp = null;
+			this.hq = null;
+			this.qInverse = null;
+		}
+		this.rho = PaillierCipher.L(g_lambda(), this.n).modInverse(this.modulus);
+	}
+	
+	// g^{lambda} (mod n^2), without a full-size modPow when possible
+	private BigInteger g_lambda()
+	{
+		if (this.g.equals(this.n.add(BigInteger.ONE)))
+		{
+			// (1 + n)^{lambda} = 1 + lambda * n (mod n^2)
+			return this.lambda.multiply(this.n).add(BigInteger.ONE).mod(this.modulus);
+		}
+		else if (this.p != null)
+		{
+			// Compute mod p^2 and q^2, then recombine mod n^2
+			BigInteger gp = this.g.mod(psquared).modPow(this.lambda, psquared);
+			BigInteger gq = this.g.mod(qsquared).modPow(this.lambda, qsquared);
+			BigInteger t = gp.subtract(gq).multiply(qsquared.modInverse(psquared)).mod(psquared);
+			return gq.add(t.multiply(qsquared));
+		}
+		return this.g.modPow(this.lambda, this.modulus);
+	}
+	
+	// h(x) = L_x(g^{x-1} mod x^2)^{-1} mod x
+	private static BigInteger h(BigInteger g, BigInteger x, BigInteger xsquared)
+	{
+		return PaillierCipher.L(g.modPow(x.subtract(BigInteger.ONE), xsquared), x).modInverse(x);
+	}
+	
+	// True if the prime factors were kept, so CRT decryption can be used
+	public boolean hasCRT()
+	{
+		return p != null;
 	}
 
 	private void readObject(ObjectInputStream aInputStream) 
@@ -7,6 +7,8 @@ import java.io.Serializable;
 import java.math.BigInteger;
 import java.security.PublicKey;
 
+import security.generic.FixedBaseTable;
+
 /*
 import org.bouncycastle.asn1.DERNull;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
@@ -30,14 +32,30 @@ public final class PaillierPublicKey implements Serializable, PaillierKey, Publi
     protected final BigInteger n;
     protected final BigInteger modulus;
     protected final BigInteger g;
+    // True if g = n + 1, so g^m = 1 + mn (mod n^2) with no exponentiation
+    protected final boolean simple_g;
+    // DJN: hs = h^n (mod n^2), randomizers are hs^a for a short a (null if not used)
+    protected final BigInteger hs;
+    private transient volatile FixedBaseTable hs_table = null;
+    // Optional pool of precomputed r^n (mod n^2), set by PaillierRandomizerPool.bind, never serialized
+    protected transient volatile PaillierRandomizerPool randomizers = null;
+    // Montgomery constants mod n^2, built on first use
+    private transient volatile PaillierMontgomery montgomery = null;
     
     public PaillierPublicKey(int keysize, BigInteger n, BigInteger modulus, BigInteger g)
+    {
+    	this(keysize, n, modulus, g, null);
+    }
+    
+    public PaillierPublicKey(int keysize, BigInteger n, BigInteger modulus, BigInteger g, BigInteger hs)
     {
         //this.algorithmIdentifier = DEFAULT_ALGORITHM_IDENTIFIER;
     	this.keysize = keysize;
     	this.n = n;
     	this.modulus = modulus;
         this.g = g;
+        this.simple_g = g.equals(n.add(BigInteger.ONE));
+        this.hs = hs;
     }
     
     private void readObject(ObjectInputStream aInputStream) throws ClassNotFoundException,
@@ -58,6 +76,10 @@ public final class PaillierPublicKey implements Serializable, PaillierKey, Publi
     	answer += "n = " + this.n + ", " + '\n';
     	answer += "modulus = " + this.modulus + '\n';
     	answer += "g = " + this.g + '\n';
+    	if (this.hs != null)
+    	{
+    		answer += "hs = " + this.hs + '\n';
+    	}
         return answer;
     }
     
@@ -71,6 +93,93 @@ public final class PaillierPublicKey implements Serializable, PaillierKey, Publi
 		return modulus;
 	}
 	
+	public boolean isSimpleG()
+	{
+		return simple_g;
+	}
+	
+	// True if encryption uses the DJN short exponent randomizer hs^a
+	public boolean isDJN()
+	{
+		return hs != null;
+	}
+	
+	public BigInteger getHs()
+	{
+		return hs;
+	}
+	
+	// Size of the DJN exponent a, twice the security level of n
+	public int getDJNExponentBits()
+	{
+		int security;
+		if (keysize <= 1024)
+		{
+			security = 80;
+		}
+		else if (keysize <= 2048)
+		{
+			security = 112;
+		}
+		else if (keysize <= 3072)
+		{
+			security = 128;
+		}
+		else
+		{
+			security = 192;
+		}
+		return 2 * security;
+	}
+	
+	// Rebuild the fixed-base table for hs with a different window size
+	public synchronized void precompute(int window)
+	{
+		if (hs == null)
+		{
+			throw new IllegalStateException("This Paillier key has no DJN base hs!");
+		}
+		hs_table = new FixedBaseTable(hs, modulus, getDJNExponentBits(), window);
+	}
+	
+	FixedBaseTable hs_table()
+	{
+		FixedBaseTable table = hs_table;
+		if (table == null)
+		{
+			table = generate_hs_table();
+		}
+		return table;
+	}
+	
+	// Only the first caller builds the table, e.g. the workers of PaillierCipher.encryptAll wait for it
+	private synchronized FixedBaseTable generate_hs_table()
+	{
+		if (hs_table != null)
+		{
+			return hs_table;
+		}
+		FixedBaseTable table = new FixedBaseTable(hs, modulus, getDJNExponentBits());
+		hs_table = table;
+		return table;
+	}
+	
+	PaillierMontgomery montgomery()
+	{
+		PaillierMontgomery m = montgomery;
+		if (m == null)
+		{
+			m = new PaillierMontgomery(modulus);
+			montgomery = m;
+		}
+		return m;
+	}
+	
+	public PaillierRandomizerPool getRandomizerPool()
+	{
+		return randomizers;
+	}
+	
 	public String getAlgorithm() 
 	{
 		return "Paillier";
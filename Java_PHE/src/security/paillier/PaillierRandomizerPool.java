@@ -0,0 +1,271 @@
+package security.paillier;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import security.generic.NTL;
+
+/*
+ * Pool of precomputed Paillier randomizers r^n (mod n^2) bound to one public key.
+ * Background threads fill the pool up to its capacity, go idle, and start
+ * refilling once the pool drops below the low-watermark.
+ *
+ * Pools are only created through bind(), which attaches the new pool to the key and shuts
+ * down the pool bound before it. While the pool is bound, PaillierCipher.encrypt takes its
+ * randomizer from here and only computes r^n inline when the pool is empty (a miss).
+ */
+public final class PaillierRandomizerPool
+{
+	public final static int DEFAULT_CAPACITY = 1024;
+	public final static int DEFAULT_LOW_WATERMARK = 256;
+
+	private final static SecureRandom rnd = new SecureRandom();
+
+	private final PaillierPublicKey pk;
+	private final int capacity;
+	private final int low_watermark;
+	private final BlockingQueue<BigInteger> pool;
+	private final ExecutorService producers;
+
+	// Producers only work while filling is true
+	private final Object lock = new Object();
+	private boolean filling = true;
+	private volatile boolean running = true;
+
+	// Metrics
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong produced = new AtomicLong();
+
+	private PaillierRandomizerPool(PaillierPublicKey pk, int capacity, int low_watermark, int threads)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("Pool capacity must be positive!");
+		}
+		if (low_watermark < 0 || low_watermark > capacity)
+		{
+			throw new IllegalArgumentException("Low-watermark must be in [0, capacity]!");
+		}
+		if (threads <= 0)
+		{
+			throw new IllegalArgumentException("Need at least one producer thread!");
+		}
+		this.pk = pk;
+		this.capacity = capacity;
+		this.low_watermark = low_watermark;
+		this.pool = new ArrayBlockingQueue<BigInteger>(capacity);
+		this.producers = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "paillier-randomizer");
+				t.setDaemon(true);
+				t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			}
+		});
+		for (int i = 0; i < threads; i++)
+		{
+			producers.execute(new Runnable()
+			{
+				public void run()
+				{
+					produce();
+				}
+			});
+		}
+	}
+
+	public static PaillierRandomizerPool bind(PaillierPublicKey pk)
+	{
+		return bind(pk, DEFAULT_CAPACITY, DEFAULT_LOW_WATERMARK, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Start a pool for pk and bind it, so PaillierCipher.encrypt uses it.
+	 * A pool that was bound to pk before is shut down.
+	 */
+	public static PaillierRandomizerPool bind(PaillierPublicKey pk, int capacity, int low_watermark, int threads)
+	{
+		PaillierRandomizerPool pool = new PaillierRandomizerPool(pk, capacity, low_watermark, threads);
+		PaillierRandomizerPool old;
+		synchronized (PaillierRandomizerPool.class)
+		{
+			old = pk.randomizers;
+			pk.randomizers = pool;
+		}
+		if (old != null)
+		{
+			old.shutdown();
+		}
+		return pool;
+	}
+
+	// r^n (mod n^2), the same randomizer PaillierCipher.encrypt computes inline
+	// For DJN keys this is hs^a with a short random a, using the fixed-base table of hs
+	protected static BigInteger compute(PaillierPublicKey pk)
+	{
+		if (pk.hs != null)
+		{
+			BigInteger a = new BigInteger(pk.getDJNExponentBits(), rnd);
+			return pk.hs_table().pow(a);
+		}
+		BigInteger randomness = NTL.RandomBnd(pk.n);
+		return randomness.modPow(pk.n, pk.modulus);
+	}
+
+	private void produce()
+	{
+		while (running)
+		{
+			synchronized (lock)
+			{
+				while (running && !filling)
+				{
+					try
+					{
+						lock.wait();
+					}
+					catch (InterruptedException e)
+					{
+						return;
+					}
+				}
+			}
+			if (!running)
+			{
+				return;
+			}
+
+			if (pool.offer(compute(pk)))
+			{
+				produced.incrementAndGet();
+			}
+			if (pool.remainingCapacity() == 0)
+			{
+				synchronized (lock)
+				{
+					filling = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Take a precomputed randomizer. Each value is handed out only once.
+	 * @return r^n (mod n^2), or null if the pool is empty
+	 */
+	public BigInteger take()
+	{
+		BigInteger r = pool.poll();
+		if (r == null)
+		{
+			misses.incrementAndGet();
+		}
+		else
+		{
+			hits.incrementAndGet();
+		}
+		if (pool.size() < low_watermark)
+		{
+			synchronized (lock)
+			{
+				if (!filling)
+				{
+					filling = true;
+					lock.notifyAll();
+				}
+			}
+		}
+		return r;
+	}
+
+	// Stop the producers and unbind the pool from its public key
+	public void shutdown()
+	{
+		running = false;
+		synchronized (lock)
+		{
+			lock.notifyAll();
+		}
+		producers.shutdownNow();
+		synchronized (PaillierRandomizerPool.class)
+		{
+			if (pk.randomizers == this)
+			{
+				pk.randomizers = null;
+			}
+		}
+		pool.clear();
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		return producers.awaitTermination(timeout, unit);
+	}
+
+	public PaillierPublicKey getPublicKey()
+	{
+		return pk;
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	public int getLowWatermark()
+	{
+		return low_watermark;
+	}
+
+	public int size()
+	{
+		return pool.size();
+	}
+
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	public long getProduced()
+	{
+		return produced.get();
+	}
+
+	public double getHitRate()
+	{
+		long total = hits.get() + misses.get();
+		if (total == 0)
+		{
+			return 0;
+		}
+		return (double) hits.get() / total;
+	}
+
+	public String toString()
+	{
+		String answer = "";
+		answer += "capacity = " + this.capacity + ", " + '\n';
+		answer += "low_watermark = " + this.low_watermark + ", " + '\n';
+		answer += "size = " + this.size() + ", " + '\n';
+		answer += "hits = " + this.getHits() + ", " + '\n';
+		answer += "misses = " + this.getMisses() + ", " + '\n';
+		answer += "produced = " + this.getProduced() + '\n';
+		return answer;
+	}
+}
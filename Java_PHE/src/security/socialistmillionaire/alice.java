@@ -8,14 +8,20 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import security.DGK.DGKCiphertextVector;
 import security.DGK.DGKOperations;
 import security.DGK.DGKPublicKey;
+import security.ecelgamal.ECElGamalCipher;
+import security.ecelgamal.ECElGamalPrivateKey;
+import security.ecelgamal.ECElGamalPublicKey;
+import security.ecelgamal.ECElGamal_Ciphertext;
 import security.elgamal.ElGamalCipher;
 import security.elgamal.ElGamalPublicKey;
 import security.elgamal.ElGamal_Ciphertext;
 import security.generic.CipherConstants;
 import security.generic.NTL;
 import security.paillier.PaillierCipher;
+import security.paillier.PaillierCiphertext;
 import security.paillier.PaillierPublicKey;
 import security.DGK.DGKPrivateKey;
 import security.elgamal.ElGamalPrivateKey;
@@ -130,6 +136,11 @@ public final class alice extends socialist_millionaires implements Runnable
 		return e_pk;
 	}
 	
+	public ECElGamalPublicKey getECElGamalPublicKey()
+	{
+		return ec_pk;
+	}
+	
 	public PaillierPrivateKey getPaillierPrivateKey()
 	{
 		return sk;
@@ -144,6 +155,11 @@ public final class alice extends socialist_millionaires implements Runnable
 	{
 		return e_sk;
 	}
+	
+	public ECElGamalPrivateKey getECElGamalPrivateKey()
+	{
+		return ec_sk;
+	}
 
 
 	public boolean Protocol1(BigInteger x) 
@@ -161,7 +177,8 @@ public final class alice extends socialist_millionaires implements Runnable
 		Object in = null;
 		BigInteger [] Encrypted_Y = null;
 		BigInteger [] C = null;
-		BigInteger [] XOR = null;
+		DGKCiphertextVector Y = null;
+		DGKCiphertextVector XOR = null;
 		//BigInteger s = null;
 		
 		// Step 1: Get Y bits from Bob
@@ -190,20 +207,9 @@ public final class alice extends socialist_millionaires implements Runnable
 
 		// Otherwise, if bit size is equal, proceed!
 		// Step 2: compute Encrypted X XOR Y
-		XOR = new BigInteger[Encrypted_Y.length];
-		for (int i = 0; i < Encrypted_Y.length; i++)
-		{
-			//Enc[x XOR y] = [y_i]
-			if (NTL.bit(x, i) == 0)
-			{
-				XOR[i] = Encrypted_Y[i];
-			}
-			//Enc[x XOR y] = [1] - [y_i]
-			else
-			{
-				XOR[i] = DGKOperations.subtract(pubKey, pubKey.ONE(), Encrypted_Y[i]);
-			}
-		}
+		//Enc[x XOR y] = [y_i] if x_i = 0, [1] - [y_i] if x_i = 1
+		Y = DGKCiphertextVector.valueOf(Encrypted_Y, pubKey);
+		XOR = Y.xor(x);
 	
 		// Step 3: Alice picks deltaA and computes S
 		//s = DGKOperations.encrypt(pubKey, 1 - 2 * deltaA);
@@ -214,17 +220,20 @@ public final class alice extends socialist_millionaires implements Runnable
 		// Compute the Product of XOR, add s and compute x - y
 		// C_i = sum(XOR) + s + x_i - y_i
 		
-		for (int i = 0; i < Encrypted_Y.length;i++)
+		long [] x_bits = new long[Encrypted_Y.length];
+		for (int i = 0; i < Encrypted_Y.length; i++)
 		{
-			C[i] = DGKOperations.multiply(pubKey, DGKOperations.sum(pubKey, XOR, i), 3);
-			C[i] = DGKOperations.add_plaintext(pubKey, C[i], 1 - 2 * deltaA);
-			C[i] = DGKOperations.add_plaintext(pubKey, C[i], NTL.bit(x, i));
-			C[i] = DGKOperations.subtract(pubKey, C[i], Encrypted_Y[i]);
+			x_bits[i] = NTL.bit(x, i);
 		}
+		System.arraycopy(XOR.exclusive_prefix_sum().multiply(3).add_plaintext(1 - 2 * deltaA)
+				.add_plaintext(x_bits).subtract(Y).toArray(), 0, C, 0, Encrypted_Y.length);
 		
 		//This is c_{-1}
-		C[Encrypted_Y.length] = DGKOperations.sum(pubKey, XOR);
+		C[Encrypted_Y.length] = XOR.sum();
 		C[Encrypted_Y.length] = DGKOperations.add_plaintext(pubKey, C[Encrypted_Y.length], deltaA);
+		
+		// So far every h^r factor in C_i came from Bob's [y_i], refresh them before blinding
+		C = DGKCiphertextVector.valueOf(C, pubKey).rerandomize().toArray();
 
 		// Step 5: Blinds C_i, Shuffle it and send to Bob
 		for (int i = 0; i < C.length; i++)
@@ -458,7 +467,8 @@ public final class alice extends socialist_millionaires implements Runnable
 		}
 		
 		Object in = null;
-		BigInteger [] XOR = null;
+		DGKCiphertextVector Y = null;
+		DGKCiphertextVector XOR = null;
 		BigInteger [] C = null;
 		BigInteger [] Encrypted_Y = null;
 		int deltaB = -1;
@@ -519,20 +529,9 @@ public final class alice extends socialist_millionaires implements Runnable
 
 		// if equal bits, proceed!
 		// Step 2: compute Encrypted X XOR Y
-		XOR = new BigInteger[Encrypted_Y.length];
-		for (int i = 0; i < Encrypted_Y.length; i++)
-		{
-			//Enc[x XOR y] = [y_i]
-			if (NTL.bit(x, i) == 0)
-			{
-				XOR[i] = Encrypted_Y[i];
-			}
-			//Enc[x XOR y] = [1] - [y_i]
-			else
-			{
-				XOR[i] = DGKOperations.subtract(pubKey, pubKey.ONE(), Encrypted_Y[i]);
-			}
-		}
+		//Enc[x XOR y] = [y_i] if x_i = 0, [1] - [y_i] if x_i = 1
+		Y = DGKCiphertextVector.valueOf(Encrypted_Y, pubKey);
+		XOR = Y.xor(x);
 		
 		// Step 3: delta A is computed on initialization, it is 0 or 1.
 		
@@ -540,10 +539,11 @@ public final class alice extends socialist_millionaires implements Runnable
 		// Step 4B: alter C_i using Delta A
 		// C_{-1} = C_i[yBits], will be computed at the end...
 		C = new BigInteger [Encrypted_Y.length + 1];
+		DGKCiphertextVector prefix = XOR.exclusive_prefix_sum();
 			
 		for (int i = 0; i < Encrypted_Y.length; i++)
 		{
-			C[i] = DGKOperations.sum(pubKey, XOR, Encrypted_Y.length - 1 - i);
+			C[i] = prefix.get(Encrypted_Y.length - 1 - i);
 			if (deltaA == 0)
 			{
 				// Step 4 = [1] - [y_i bit] + [c_i]
@@ -559,8 +559,11 @@ public final class alice extends socialist_millionaires implements Runnable
 		}
 		
 		// This is c_{-1}
-		C[Encrypted_Y.length] = DGKOperations.sum(pubKey, XOR);
+		C[Encrypted_Y.length] = XOR.sum();
 		C[Encrypted_Y.length] = DGKOperations.add_plaintext(pubKey, C[Encrypted_Y.length], deltaA);
+		
+		// So far every h^r factor in C_i came from Bob's [y_i], refresh them before blinding
+		C = DGKCiphertextVector.valueOf(C, pubKey).rerandomize().toArray();
 
 		// Step 5: Apply the Blinding to C_i and send it to Bob
 		for (int i = 0; i < Encrypted_Y.length; i++)
@@ -959,25 +962,27 @@ public final class alice extends socialist_millionaires implements Runnable
 		}
 		else
 		{
+			// No randomness yet, Bob knows the r^n in zeta, so obfuscate() adds a fresh one before sending
+			PaillierCiphertext enc_alpha_lt_beta = null;
 			if(deltaA == 1)
 			{
-				alpha_lt_beta = PaillierCipher.encrypt(deltaB, pk);
+				enc_alpha_lt_beta = PaillierCiphertext.encrypt_unobfuscated(deltaB, pk);
 			}
 			else
 			{
-				alpha_lt_beta = PaillierCipher.encrypt(1 - deltaB, pk);
+				enc_alpha_lt_beta = PaillierCiphertext.encrypt_unobfuscated(1 - deltaB, pk);
 			}
 
 			// Step 7: Compute [[x <= y]]
+			// [[zeta]] - [[r/2^l]] - [[alpha < beta]] = [[zeta]] - ([[r/2^l]] + [[alpha < beta]])
+			PaillierCiphertext blind = PaillierCiphertext.encrypt_unobfuscated(r.divide(powL), pk).add(enc_alpha_lt_beta);
 			if(r.compareTo(pk.getN().subtract(BigInteger.ONE).divide(TWO)) == -1)
 			{
-				result = PaillierCipher.subtract(zeta_one, PaillierCipher.encrypt(r.divide(powL), pk), pk);
-				result = PaillierCipher.subtract(result, alpha_lt_beta, pk);
+				result = PaillierCiphertext.valueOf(zeta_one, pk).subtract(blind).obfuscate().toBigInteger();
 			}
 			else
 			{
-				result = PaillierCipher.subtract(zeta_two, PaillierCipher.encrypt(r.divide(powL), pk), pk);
-				result = PaillierCipher.subtract(result, alpha_lt_beta, pk);
+				result = PaillierCiphertext.valueOf(zeta_two, pk).subtract(blind).obfuscate().toBigInteger();
 			}
 		}
 		
@@ -1135,6 +1140,144 @@ public final class alice extends socialist_millionaires implements Runnable
 		}
 		return comparison == 1;
 	}
+
+	// Same as Protocol4 with ElGamal, N is the order of the P-256 base point
+	public boolean Protocol4(ECElGamal_Ciphertext x, ECElGamal_Ciphertext y) 
+			throws IOException, ClassNotFoundException, IllegalArgumentException
+	{
+		int deltaB = -1;
+		int x_leq_y = -1;
+		int comparison = -1;
+		int deltaA = rnd.nextInt(2);
+		Object bob = null;
+		ECElGamal_Ciphertext alpha_lt_beta = null;
+		ECElGamal_Ciphertext z = null;
+		ECElGamal_Ciphertext zeta_one = null;
+		ECElGamal_Ciphertext zeta_two = null;
+		ECElGamal_Ciphertext result = null;
+		BigInteger r = null;
+		BigInteger alpha = null;
+		BigInteger N = ec_pk.getN();
+		
+		// Step 1: 0 <= r < N
+		r = NTL.RandomBnd(CipherConstants.FIELD_SIZE);
+		
+		/*
+		 * Step 2: Alice computes [[z]] = [[x - y + 2^l + r]]
+		 * Send Z to Bob
+		 * [[x + 2^l + r]]
+		 * [[z]] = [[x - y + 2^l + r]]
+		 */
+		z = ECElGamalCipher.add(x, ECElGamalCipher.encrypt(ec_pk, r.add(powL)), ec_pk);
+		z = ECElGamalCipher.subtract(z, y, ec_pk);
+		toBob.writeObject(z);
+		toBob.flush();
+		
+		// Step 2: Bob decrypts[[z]] and computes beta = z (mod 2^l)
+
+		// Step 3: alpha = r (mod 2^l)
+		alpha = NTL.POSMOD(r, powL);
+
+		// Step 4: Modified Protocol 3 or Protocol 3
+		
+		// See Optimization 3: true --> Use Modified Protocol 3 	
+		if(r.add(TWO.pow(pubKey.getL() + 1)).compareTo(N) == -1)
+		{
+			toBob.writeBoolean(false);
+			toBob.flush();
+			if(Protocol3(alpha, deltaA))
+			{
+				x_leq_y = 1;
+			}
+			else
+			{
+				x_leq_y = 0;
+			}
+		}
+		else
+		{
+			toBob.writeBoolean(true);
+			toBob.flush();
+			if(Modified_Protocol3(alpha, r, deltaA))
+			{
+				x_leq_y = 1;
+			}
+			else
+			{
+				x_leq_y = 0;
+			}
+		}
+        
+		// Step 5: get Delta B and [[z_1]] and [[z_2]]
+    	if(deltaA == x_leq_y)
+        {
+            deltaB = 0;
+        }
+        else
+        {
+            deltaB = 1;
+        }
+
+		bob = fromBob.readObject();
+		if (bob instanceof ECElGamal_Ciphertext)
+		{
+			zeta_one = (ECElGamal_Ciphertext) bob;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Protocol 4, Step 5: BigInteger z_1 not found!");
+		}
+		
+		bob = fromBob.readObject();
+		if (bob instanceof ECElGamal_Ciphertext)
+		{
+			zeta_two = (ECElGamal_Ciphertext) bob;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Protocol 4, Step 5: BigInteger z_2 not found!");
+		}
+		
+		// Step 6: Compute [[beta <= alpha]]
+		if(deltaA == 1)
+		{
+			alpha_lt_beta = ECElGamalCipher.encrypt(ec_pk, deltaB);
+		}
+		else
+		{
+			alpha_lt_beta = ECElGamalCipher.encrypt(ec_pk, 1 - deltaB);
+		}
+
+		// Step 7: Compute [[x <= y]]
+		if(r.compareTo(N.subtract(BigInteger.ONE).divide(TWO)) == -1)
+		{
+			result = ECElGamalCipher.subtract(zeta_one, ECElGamalCipher.encrypt(ec_pk, r.divide(powL)), ec_pk);
+		}
+		else
+		{
+			result = ECElGamalCipher.subtract(zeta_two, ECElGamalCipher.encrypt(ec_pk, r.divide(powL)), ec_pk);
+		}
+		result = ECElGamalCipher.subtract(result, alpha_lt_beta, ec_pk);
+		
+		/*
+		 * Unofficial Step 8:
+		 * Since the result is encrypted...I need to send
+		 * this back to Bob (Android Phone) to decrypt the solution...
+		 * 
+		 * Bob by definition would know the answer as well.
+		 */
+
+		toBob.writeObject(result);
+		toBob.flush();
+		comparison = fromBob.readInt();
+		// IF SOMETHING HAPPENS...GET POST MORTERM HERE
+		if (comparison != 0 && comparison != 1)
+		{
+			throw new IllegalArgumentException("Invalid Comparison result --> " + comparison);
+			//System.out.println("Invalid Comparison result --> " + comparison);
+		}
+		return comparison == 1;
+	}
 	
 	/*
 	 * See Protocol 2:
@@ -1792,13 +1935,15 @@ public final class alice extends socialist_millionaires implements Runnable
 		}
 	
 		x = fromBob.readObject();
+		e_pk = null;
+		ec_pk = null;
 		if(x instanceof ElGamalPublicKey)
 		{
 			e_pk = (ElGamalPublicKey) x;
 		}
-		else
+		else if(x instanceof ECElGamalPublicKey)
 		{
-			e_pk = null;
+			ec_pk = (ECElGamalPublicKey) x;
 		}
 	}
 	
@@ -1827,13 +1972,15 @@ public final class alice extends socialist_millionaires implements Runnable
 		}
 	
 		x = fromBob.readObject();
+		e_sk = null;
+		ec_sk = null;
 		if(x instanceof ElGamalPrivateKey)
 		{
 			e_sk = (ElGamalPrivateKey) x;
 		}
-		else
+		else if(x instanceof ECElGamalPrivateKey)
 		{
-			e_sk = null;
+			ec_sk = (ECElGamalPrivateKey) x;
 		}
 	}
 	
@@ -10,6 +10,10 @@ import java.security.KeyPair;
 import security.DGK.DGKOperations;
 import security.DGK.DGKPrivateKey;
 import security.DGK.DGKPublicKey;
+import security.ecelgamal.ECElGamalCipher;
+import security.ecelgamal.ECElGamalPrivateKey;
+import security.ecelgamal.ECElGamalPublicKey;
+import security.ecelgamal.ECElGamal_Ciphertext;
 import security.elgamal.ElGamalCipher;
 import security.elgamal.ElGamalPrivateKey;
 import security.elgamal.ElGamalPublicKey;
@@ -100,12 +104,17 @@ public final class bob extends socialist_millionaires implements Runnable
 		
 		if(c != null)
 		{
-			// IF YOU GIVE BOB A THIRD KEY PAIR, IT MUST BE EL GAMAL!
+			// IF YOU GIVE BOB A THIRD KEY PAIR, IT MUST BE EL GAMAL OR EC EL GAMAL!
 			if (c.getPublic() instanceof ElGamalPublicKey)
 			{
 				this.e_pk = (ElGamalPublicKey) c.getPublic();
 				this.e_sk = (ElGamalPrivateKey) c.getPrivate();
 			}
+			else if (c.getPublic() instanceof ECElGamalPublicKey)
+			{
+				this.ec_pk = (ECElGamalPublicKey) c.getPublic();
+				this.ec_sk = (ECElGamalPrivateKey) c.getPrivate();
+			}
 			else
 			{
 				throw new IllegalArgumentException("Third Keypair MUST BE AN EL GAMAL KEY PAIR!");
@@ -149,6 +158,11 @@ public final class bob extends socialist_millionaires implements Runnable
 		return e_pk;
 	}
 	
+	public ECElGamalPublicKey getECElGamalPublicKey()
+	{
+		return ec_pk;
+	}
+	
 	// Get Private Key
 	public PaillierPrivateKey getPaillierPrivateKey()
 	{
@@ -165,6 +179,11 @@ public final class bob extends socialist_millionaires implements Runnable
 		return e_sk;
 	}
 	
+	public ECElGamalPrivateKey getECElGamalPrivateKey()
+	{
+		return ec_sk;
+	}
+	
 	// This is used for Alice to sort an array of encryped numbers!
 	private void repeat_Protocol2()
 			throws IOException, ClassNotFoundException, IllegalArgumentException
@@ -265,13 +284,9 @@ public final class bob extends socialist_millionaires implements Runnable
 			throw new IllegalArgumentException("Protocol 1, Step 6: Invalid object!");
 		}
 		
-		for (BigInteger C_i: C)
+		if (DGKOperations.anyZero(privKey, C))
 		{
-			if (DGKOperations.decrypt(privKey, C_i) == 0)
-			{
-				deltaB = 1;
-				break;
-			}
+			deltaB = 1;
 		}
 	
 		// Step 7: UNOFFICIAL
@@ -476,13 +491,9 @@ public final class bob extends socialist_millionaires implements Runnable
 		if (x instanceof BigInteger [])
 		{
 			C = (BigInteger []) x;
-			for (BigInteger C_i: C)
+			if (DGKOperations.anyZero(privKey, C))
 			{
-				if (DGKOperations.decrypt(privKey, C_i) == 0)
-				{
-					deltaB = 1;
-					break;
-				}
+				deltaB = 1;
 			}
 		}
 		// Number of bits gives away the answer!
@@ -620,13 +631,9 @@ public final class bob extends socialist_millionaires implements Runnable
 			throw new IllegalArgumentException("Modified Protocol3: invalid input in Step J");
 		}
 
-		for (BigInteger C_i: C)
+		if (DGKOperations.anyZero(privKey, C))
 		{
-			if(DGKOperations.decrypt(privKey, C_i) == 0)
-			{
-				deltaB = 1;
-				break;
-			}
+			deltaB = 1;
 		}
 		toAlice.writeInt(deltaB);
 		toAlice.flush();
@@ -821,6 +828,78 @@ public final class bob extends socialist_millionaires implements Runnable
 		return answer == 1;
 	}
 	
+	// Same as ElGamal_Protocol4, N is the order of the P-256 base point
+	public boolean ECElGamal_Protocol4() 
+			throws IOException, ClassNotFoundException, IllegalArgumentException
+	{
+		int answer = -1;
+		Object x = null;
+		BigInteger beta = null;
+		BigInteger z = null;
+		ECElGamal_Ciphertext enc_z = null;
+		ECElGamal_Ciphertext zeta_one = null;
+		ECElGamal_Ciphertext zeta_two = null;
+		BigInteger N = ec_pk.getN();
+		
+		//Step 1: get [[z]] from Alice
+		x = fromAlice.readObject();
+		if (x instanceof ECElGamal_Ciphertext)
+		{
+			enc_z = (ECElGamal_Ciphertext) x;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Protocol 4: No ECElGamal_Ciphertext found!");
+		}
+		z = ECElGamalCipher.decrypt(ec_sk, enc_z);
+		
+		// Step 2: compute Beta = z (mod 2^l), 
+		beta = NTL.POSMOD(z, powL);
+
+		// Step 3: Alice computes r (mod 2^l) (Alpha)
+
+		// Step 4: Run Modified DGK Comparison Protocol
+		// true --> run Modified protocol 3
+		if(fromAlice.readBoolean())
+		{
+			Modified_Protocol3(beta, z);
+		}
+		else
+		{
+			Protocol3(beta);
+		}
+
+		//Step 5" Send [[z/2^l]], Alice has the solution from Protocol 3 already..
+		zeta_one = ECElGamalCipher.encrypt(ec_pk, z.divide(powL));
+		if(z.compareTo(N.subtract(BigInteger.ONE).divide(TWO)) == -1)
+		{
+			zeta_two = ECElGamalCipher.encrypt(ec_pk, z.add(N).divide(powL));
+		}
+		else
+		{
+			zeta_two = ECElGamalCipher.encrypt(ec_pk, z.divide(powL));
+		}
+		toAlice.writeObject(zeta_one);
+		toAlice.writeObject(zeta_two);
+		toAlice.flush();
+
+		//Step 6 - 7: Alice Computes [[x >= y]]
+
+		//Step 8 (UNOFFICIAL): Alice needs the answer...
+		x = fromAlice.readObject();
+		if (x instanceof ECElGamal_Ciphertext)
+		{
+			answer = ECElGamalCipher.decrypt(ec_sk, (ECElGamal_Ciphertext) x).intValue();
+			toAlice.writeInt(answer);
+			toAlice.flush();
+		}
+		else
+		{
+			throw new IllegalArgumentException("Protocol 4, Step 8 Failed");
+		}
+		return answer == 1;
+	}
+	
 	public void ElGamal_division(long divisor) 
 			throws ClassNotFoundException, IOException, IllegalArgumentException
 	{
@@ -1010,6 +1089,10 @@ public final class bob extends socialist_millionaires implements Runnable
 		{
 			toAlice.writeObject(e_pk);
 		}
+		else if(ec_pk != null)
+		{
+			toAlice.writeObject(ec_pk);
+		}
 		else
 		{
 			toAlice.writeObject(BigInteger.ZERO);
@@ -1039,6 +1122,10 @@ public final class bob extends socialist_millionaires implements Runnable
 		{
 			toAlice.writeObject(e_sk);
 		}
+		else if(ec_sk != null)
+		{
+			toAlice.writeObject(ec_sk);
+		}
 		else
 		{
 			toAlice.writeObject(BigInteger.ZERO);
@@ -4,6 +4,8 @@ import java.math.BigInteger;
 import java.security.SecureRandom;
 
 import security.DGK.DGKPublicKey;
+import security.ecelgamal.ECElGamalPrivateKey;
+import security.ecelgamal.ECElGamalPublicKey;
 import security.elgamal.ElGamalPublicKey;
 import security.paillier.PaillierPublicKey;
 import security.DGK.DGKPrivateKey;
@@ -31,6 +33,9 @@ public abstract class socialist_millionaires
 	protected PaillierPrivateKey sk = null;
 	protected DGKPrivateKey privKey = null;
 	protected ElGamalPrivateKey e_sk = null;
+	// EC ElGamal takes the place of ElGamal in the key exchange
+	protected ECElGamalPublicKey ec_pk = null;
+	protected ECElGamalPrivateKey ec_sk = null;
 	
 	// Both use 2^l
     protected BigInteger powL;